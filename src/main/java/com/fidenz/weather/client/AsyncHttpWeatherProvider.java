@@ -0,0 +1,103 @@
+package com.fidenz.weather.client;
+
+import com.fidenz.weather.dto.OpenWeatherMapGroupResponseDTO;
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking provider built on the JDK {@link HttpClient}. Requests are
+ * multiplexed over a handful of selector/callback threads, so hundreds of
+ * concurrent upstream calls do not need hundreds of threads.
+ */
+@Component
+@ConditionalOnProperty(name = "weather.provider.mode", havingValue = "async")
+@Slf4j
+public class AsyncHttpWeatherProvider implements WeatherProvider {
+
+    private final OpenWeatherMapEndpoint endpoint;
+    private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+    private final ExecutorService callbackExecutor;
+    private final HttpClient httpClient;
+
+    public AsyncHttpWeatherProvider(
+            OpenWeatherMapEndpoint endpoint,
+            ObjectMapper objectMapper,
+            @Value("${weather.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${weather.http.read-timeout-ms:5000}") long readTimeoutMs,
+            @Value("${weather.provider.async-threads:4}") int threads) {
+        this.endpoint = endpoint;
+        this.objectMapper = objectMapper;
+        this.requestTimeout = Duration.ofMillis(readTimeoutMs);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("weather-async-");
+        threadFactory.setDaemon(true);
+        this.callbackExecutor = Executors.newFixedThreadPool(threads, threadFactory);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(callbackExecutor)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<OpenWeatherMapResponseDTO> fetchCurrentWeather(String cityId) {
+        String url = endpoint.currentWeatherUrl(cityId);
+        log.debug("Calling OpenWeatherMap API (async): {}", endpoint.redact(url));
+        return send(url).thenApply(response -> parse(response, OpenWeatherMapResponseDTO.class, "city " + cityId));
+    }
+
+    @Override
+    public CompletableFuture<List<OpenWeatherMapResponseDTO>> fetchCurrentWeatherGroup(List<String> cityIds) {
+        String url = endpoint.groupUrl(cityIds);
+        log.debug("Calling OpenWeatherMap group API (async) for {} cities: {}", cityIds.size(), endpoint.redact(url));
+        return send(url).thenApply(response -> {
+            OpenWeatherMapGroupResponseDTO group = parse(response, OpenWeatherMapGroupResponseDTO.class,
+                    cityIds.size() + " grouped cities");
+            return group.getList() == null ? List.<OpenWeatherMapResponseDTO>of() : group.getList();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callbackExecutor.shutdownNow();
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(String url) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private <T> T parse(HttpResponse<byte[]> response, Class<T> type, String subject) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("OpenWeatherMap returned HTTP " + response.statusCode()
+                    + " for " + subject);
+        }
+        try {
+            return objectMapper.readValue(response.body(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.fidenz.weather.client;
+
+import com.fidenz.weather.dto.OpenWeatherMapGroupResponseDTO;
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the pooled {@link RestTemplate} call on a dedicated I/O pool. Each
+ * in-flight request occupies one pool thread. With
+ * {@code spring.threads.virtual.enabled} on a Java 21 runtime each call gets
+ * its own virtual thread instead, and concurrency is bounded only by the
+ * fan-out window and the HTTP connection pool.
+ */
+@Component
+@ConditionalOnProperty(name = "weather.provider.mode", havingValue = "blocking", matchIfMissing = true)
+@Slf4j
+public class BlockingWeatherProvider implements WeatherProvider {
+
+    private static final String THREAD_PREFIX = "weather-io-";
+
+    private final RestTemplate restTemplate;
+    private final OpenWeatherMapEndpoint endpoint;
+    private final Executor ioExecutor;
+
+    public BlockingWeatherProvider(
+            RestTemplate restTemplate,
+            OpenWeatherMapEndpoint endpoint,
+            @Value("${weather.provider.blocking-threads:16}") int threads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.restTemplate = restTemplate;
+        this.endpoint = endpoint;
+
+        if (virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            log.info("Upstream weather calls will run on virtual threads");
+            this.ioExecutor = new VirtualThreadTaskExecutor(THREAD_PREFIX);
+        } else {
+            if (virtualThreads) {
+                log.warn("Virtual threads requested but running on Java {}; using a pool of {} platform threads",
+                        JavaVersion.getJavaVersion(), threads);
+            }
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_PREFIX);
+            threadFactory.setDaemon(true);
+            this.ioExecutor = Executors.newFixedThreadPool(threads, threadFactory);
+        }
+    }
+
+    @Override
+    public CompletableFuture<OpenWeatherMapResponseDTO> fetchCurrentWeather(String cityId) {
+        String url = endpoint.currentWeatherUrl(cityId);
+        return CompletableFuture.supplyAsync(() -> {
+            log.debug("Calling OpenWeatherMap API: {}", endpoint.redact(url));
+            return restTemplate.getForObject(url, OpenWeatherMapResponseDTO.class);
+        }, ioExecutor);
+    }
+
+    @Override
+    public CompletableFuture<List<OpenWeatherMapResponseDTO>> fetchCurrentWeatherGroup(List<String> cityIds) {
+        String url = endpoint.groupUrl(cityIds);
+        return CompletableFuture.supplyAsync(() -> {
+            log.debug("Calling OpenWeatherMap group API for {} cities: {}", cityIds.size(), endpoint.redact(url));
+            OpenWeatherMapGroupResponseDTO group = restTemplate.getForObject(url, OpenWeatherMapGroupResponseDTO.class);
+            return group == null || group.getList() == null ? List.<OpenWeatherMapResponseDTO>of() : group.getList();
+        }, ioExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ioExecutor instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+    }
+}
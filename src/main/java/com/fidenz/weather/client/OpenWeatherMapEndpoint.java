@@ -0,0 +1,50 @@
+package com.fidenz.weather.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Builds OpenWeatherMap request URLs from the configured base URL, key and units.
+ */
+@Component
+public class OpenWeatherMapEndpoint {
+
+    /**
+     * Most city IDs OpenWeatherMap accepts in one {@code /group} request.
+     */
+    public static final int MAX_GROUP_SIZE = 20;
+
+    private final String baseUrl;
+    private final String apiKey;
+    private final String units;
+
+    public OpenWeatherMapEndpoint(
+            @Value("${weather.api.base-url}") String baseUrl,
+            @Value("${weather.api.key}") String apiKey,
+            @Value("${weather.api.units:metric}") String units) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.units = units;
+    }
+
+    public String currentWeatherUrl(String cityId) {
+        return String.format("%s/weather?id=%s&appid=%s&units=%s", baseUrl, cityId, apiKey, units);
+    }
+
+    public String groupUrl(List<String> cityIds) {
+        if (cityIds.isEmpty() || cityIds.size() > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("A group request takes 1 to " + MAX_GROUP_SIZE
+                    + " city IDs, got " + cityIds.size());
+        }
+        return String.format("%s/group?id=%s&appid=%s&units=%s", baseUrl, String.join(",", cityIds), apiKey, units);
+    }
+
+    /**
+     * The URL with the API key masked, for logging.
+     */
+    public String redact(String url) {
+        return apiKey.isEmpty() ? url : url.replace(apiKey, "***");
+    }
+}
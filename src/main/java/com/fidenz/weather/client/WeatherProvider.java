@@ -0,0 +1,23 @@
+package com.fidenz.weather.client;
+
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of current weather observations. Implementations never block the
+ * caller: the returned future completes with the upstream response or
+ * exceptionally if the call failed.
+ */
+public interface WeatherProvider {
+
+    CompletableFuture<OpenWeatherMapResponseDTO> fetchCurrentWeather(String cityId);
+
+    /**
+     * Current weather for up to {@link OpenWeatherMapEndpoint#MAX_GROUP_SIZE}
+     * cities in one upstream request. Cities the upstream does not know are
+     * simply absent from the result.
+     */
+    CompletableFuture<List<OpenWeatherMapResponseDTO>> fetchCurrentWeatherGroup(List<String> cityIds);
+}
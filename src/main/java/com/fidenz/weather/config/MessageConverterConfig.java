@@ -0,0 +1,31 @@
+package com.fidenz.weather.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary Jackson formats next to JSON: clients sending
+ * {@code Accept: application/cbor} or {@code application/x-jackson-smile} get
+ * the same DTOs without the text encoding. Both mappers are built from Boot's
+ * {@link Jackson2ObjectMapperBuilder}, so they share the JSON mapper's modules
+ * and settings. Boot slots them in place of the MVC defaults, after the JSON
+ * converter, so JSON stays the answer to {@code Accept: *}{@code /*}.
+ */
+@Configuration
+public class MessageConverterConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
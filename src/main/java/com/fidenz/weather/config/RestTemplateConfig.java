@@ -1,14 +1,119 @@
 package com.fidenz.weather.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class RestTemplateConfig {
 
+    @Value("${weather.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${weather.http.max-connections-per-route:20}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${weather.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${weather.http.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${weather.http.pool-acquire-timeout-ms:1000}")
+    private long poolAcquireTimeoutMs;
+
+    @Value("${weather.http.keep-alive-seconds:30}")
+    private long keepAliveSeconds;
+
+    @Value("${weather.http.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${weather.http.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public PoolingHttpClientConnectionManager weatherConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient weatherHttpClient(PoolingHttpClientConnectionManager weatherConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(weatherConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .setRetryStrategy(new BackoffRetryStrategy(maxRetries, retryBackoffMs))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient weatherHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(weatherHttpClient));
+    }
+
+    /**
+     * Retries idempotent requests on transient I/O errors and 429/503 responses,
+     * waiting {@code backoff * 2^(attempt - 1)} between attempts unless the
+     * server sent a Retry-After header.
+     */
+    static class BackoffRetryStrategy extends DefaultHttpRequestRetryStrategy {
+
+        private final long backoffMs;
+
+        BackoffRetryStrategy(int maxRetries, long backoffMs) {
+            super(maxRetries, TimeValue.ofMilliseconds(backoffMs));
+            this.backoffMs = backoffMs;
+        }
+
+        @Override
+        public TimeValue getRetryInterval(HttpResponse response, int execCount, HttpContext context) {
+            if (response.containsHeader(HttpHeaders.RETRY_AFTER)) {
+                return super.getRetryInterval(response, execCount, context);
+            }
+            return backoff(execCount);
+        }
+
+        @Override
+        public TimeValue getRetryInterval(HttpRequest request, IOException exception,
+                                          int execCount, HttpContext context) {
+            return backoff(execCount);
+        }
+
+        private TimeValue backoff(int execCount) {
+            int shift = Math.min(Math.max(execCount - 1, 0), 10);
+            return TimeValue.of(backoffMs << shift, TimeUnit.MILLISECONDS);
+        }
     }
-}
\ No newline at end of file
+}
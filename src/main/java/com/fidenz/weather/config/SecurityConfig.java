@@ -63,6 +63,7 @@ public class SecurityConfig {
                         // Authenticated endpoints
                         .requestMatchers("/api/v1/weather/**").authenticated()
                         .requestMatchers("/api/v1/cache/**").authenticated()
+                        .requestMatchers("/api/v1/comfort-model/**").authenticated()
                         .requestMatchers("/api/v1/auth/**").authenticated()
 
                         // Any other request
@@ -107,7 +108,9 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With",
+                "If-None-Match", "If-Modified-Since", "Last-Event-ID"));
+        configuration.setExposedHeaders(List.of("X-Total-Count", "ETag", "Last-Modified"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
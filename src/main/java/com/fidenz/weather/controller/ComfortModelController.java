@@ -0,0 +1,65 @@
+package com.fidenz.weather.controller;
+
+import com.fidenz.weather.dto.ComfortModelDTO;
+import com.fidenz.weather.dto.ErrorResponseDTO;
+import com.fidenz.weather.service.WeatherService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/comfort-model")
+@RequiredArgsConstructor
+@Tag(name = "Comfort Model", description = "Comfort index weights, bands and level thresholds")
+public class ComfortModelController {
+
+    private final WeatherService weatherService;
+
+    @GetMapping
+    @Operation(
+            summary = "Get the active comfort model",
+            description = "Returns the parameters and version of the comfort model used for scoring"
+    )
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved the comfort model")
+    public ResponseEntity<ComfortModelDTO> getComfortModel() {
+        return ResponseEntity.ok(weatherService.getComfortModel());
+    }
+
+    @PutMapping
+    @Operation(
+            summary = "Replace the comfort model",
+            description = "Validates and activates a new comfort model. Omitted values keep their defaults. "
+                    + "Cached weather is re-scored without refetching from upstream"
+    )
+    @PreAuthorize("hasAuthority('SCOPE_admin:cache')")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Comfort model activated"),
+            @ApiResponse(responseCode = "400", description = "Invalid comfort model",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    public ResponseEntity<ComfortModelDTO> updateComfortModel(@RequestBody ComfortModelDTO definition) {
+        return ResponseEntity.ok(weatherService.updateComfortModel(definition));
+    }
+
+    @PostMapping("/reload")
+    @Operation(
+            summary = "Reload the comfort model",
+            description = "Re-reads weather.comfort.model-location and activates it"
+    )
+    @PreAuthorize("hasAuthority('SCOPE_admin:cache')")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Comfort model reloaded"),
+            @ApiResponse(responseCode = "400", description = "Configured comfort model is invalid",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    public ResponseEntity<ComfortModelDTO> reloadComfortModel() {
+        return ResponseEntity.ok(weatherService.reloadComfortModel());
+    }
+}
@@ -2,23 +2,43 @@ package com.fidenz.weather.controller;
 
 import com.fidenz.weather.dto.ComfortIndexResponse;
 import com.fidenz.weather.dto.ErrorResponseDTO;
+import com.fidenz.weather.dto.RankingDeltaDTO;
 import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.service.CacheValidator;
+import com.fidenz.weather.service.EncodedRanking;
+import com.fidenz.weather.service.FrameSink;
+import com.fidenz.weather.service.RankingPage;
+import com.fidenz.weather.service.RankingQuery;
+import com.fidenz.weather.service.RankingSubscription;
 import com.fidenz.weather.service.WeatherService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.time.LocalDateTime;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -27,33 +47,96 @@ import java.util.Map;
 @Tag(name = "Weather API", description = "Weather data and comfort index operations")
 public class WeatherController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final String GZIP = "gzip";
+    private static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    // JSON first: it wins ties, e.g. Accept: */*
+    private static final List<MediaType> FORMATS = List.of(MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR, MediaType.parseMediaType(APPLICATION_SMILE_VALUE));
+    // Clients may keep responses but must revalidate them on every use
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final WeatherService weatherService;
+    private final ContentNegotiationManager contentNegotiationManager;
+
+    @Value("${weather.stream.timeout-ms:1800000}")
+    private long streamTimeoutMillis;
 
-    @GetMapping("/cities")
+    @GetMapping(value = "/cities",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     @Operation(
             summary = "Get weather data for all cities",
-            description = "Returns weather data for all supported cities with comfort index ranking"
+            description = "Returns weather data for all supported cities with comfort index ranking. "
+                    + "Optional filters and paging are applied server-side; the total number of "
+                    + "matching cities is returned in the X-Total-Count header. Responses carry an ETag "
+                    + "that changes with the ranking; If-None-Match is answered with 304. Send "
+                    + "Accept: application/cbor or application/x-jackson-smile for a binary encoding."
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved weather data"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved weather data",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = WeatherResponseDTO.class)))),
+            @ApiResponse(responseCode = "304", description = "Ranking unchanged since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Invalid paging parameters",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class)))
     })
-    public ResponseEntity<List<WeatherResponseDTO>> getAllCitiesWeather(
+    public ResponseEntity<?> getAllCitiesWeather(
             @Parameter(description = "Force refresh data from API (bypass cache)")
-            @RequestParam(defaultValue = "false") boolean forceRefresh) {
+            @RequestParam(defaultValue = "false") boolean forceRefresh,
+
+            @Parameter(description = "Maximum number of cities to return", example = "10")
+            @RequestParam(required = false) Integer limit,
+
+            @Parameter(description = "Number of ranked matches to skip", example = "0")
+            @RequestParam(defaultValue = "0") int offset,
+
+            @Parameter(description = "Only cities in this country code", example = "LK")
+            @RequestParam(required = false) String country,
+
+            @Parameter(description = "Only cities with at least this comfort score", example = "60")
+            @RequestParam(required = false) Double minScore,
+
+            @Parameter(description = "Only cities with this comfort level", example = "Comfortable")
+            @RequestParam(required = false) String comfortLevel,
+
+            HttpServletRequest request) throws HttpMediaTypeNotAcceptableException {
+
+        RankingQuery query = new RankingQuery(limit, offset, country, minScore, comfortLevel);
+        MediaType format = binaryFormat(request);
+        boolean encoded = format == null && RankingQuery.ALL.equals(query);
+        boolean gzip = encoded && acceptsGzip(request);
+
+        CacheValidator current = forceRefresh ? null : weatherService.getRankingValidator();
+        if (current != null) {
+            CacheValidator representation = gzip ? current.variant(GZIP) : variant(current, format);
+            if (isNotModified(request, representation)) {
+                return notModified(representation);
+            }
+        }
 
-        List<WeatherResponseDTO> weatherList = weatherService.getAllCitiesWeather(forceRefresh);
-        return ResponseEntity.ok(weatherList);
+        if (encoded) {
+            // The full ranking is kept pre-encoded; send the bytes without going through Jackson
+            return encodedRanking(weatherService.getEncodedRanking(forceRefresh), gzip);
+        }
+
+        RankingPage page = weatherService.getRankedCities(query, forceRefresh);
+        return ok(variant(page.validator(), format), format)
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.totalMatches()))
+                .body(page.cities());
     }
 
-    @GetMapping("/city/{cityId}")
+    @GetMapping(value = "/city/{cityId}",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     @Operation(
             summary = "Get weather data for a specific city",
-            description = "Returns weather data and comfort index for a single city"
+            description = "Returns weather data and comfort index for a single city. Cached responses carry "
+                    + "an ETag; If-None-Match is answered with 304 while the city's entry is unchanged. "
+                    + "Also available as CBOR or Smile through the Accept header."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Successfully retrieved city weather"),
+            @ApiResponse(responseCode = "304", description = "City weather unchanged since the given ETag"),
             @ApiResponse(responseCode = "404", description = "City not found",
                     content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))),
             @ApiResponse(responseCode = "500", description = "Internal server error",
@@ -64,7 +147,15 @@ public class WeatherController {
             @PathVariable String cityId,
 
             @Parameter(description = "Force refresh data from API (bypass cache)")
-            @RequestParam(defaultValue = "false") boolean forceRefresh) {
+            @RequestParam(defaultValue = "false") boolean forceRefresh,
+
+            HttpServletRequest request) throws HttpMediaTypeNotAcceptableException {
+
+        MediaType format = binaryFormat(request);
+        CacheValidator before = forceRefresh ? null : weatherService.getCityValidator(cityId);
+        if (before != null && isNotModified(request, variant(before, format))) {
+            return notModified(variant(before, format));
+        }
 
         WeatherResponseDTO weather = weatherService.getCityWeather(cityId, forceRefresh);
 
@@ -80,7 +171,125 @@ public class WeatherController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
 
-        return ResponseEntity.ok(weather);
+        // Only tag a body known to come from the entry the validator describes;
+        // a fresh load is tagged from the next read on
+        CacheValidator after = weatherService.getCityValidator(cityId);
+        if (after == null || !after.equals(before)) {
+            ResponseEntity.BodyBuilder untagged = ResponseEntity.ok();
+            if (format != null) {
+                untagged.contentType(format);
+            }
+            return untagged.varyBy(HttpHeaders.ACCEPT).body(weather);
+        }
+        return ok(variant(after, format), format).body(weather);
+    }
+
+    @GetMapping(value = "/cities/batch",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(
+            summary = "Get weather data for several cities",
+            description = "Returns weather data for the listed city IDs in one response, in request order "
+                    + "with duplicates removed. Uncached cities are loaded together through the upstream "
+                    + "group endpoint."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved weather data"),
+            @ApiResponse(responseCode = "400", description = "No city IDs given, or more than the configured maximum",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))),
+            @ApiResponse(responseCode = "404", description = "One or more cities not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    public ResponseEntity<List<WeatherResponseDTO>> getCitiesWeather(
+            @Parameter(description = "Comma-separated city IDs", example = "1248991,1850147")
+            @RequestParam List<String> ids,
+
+            @Parameter(description = "Force refresh data from API (bypass cache)")
+            @RequestParam(defaultValue = "false") boolean forceRefresh) {
+
+        return ResponseEntity.ok(weatherService.getCitiesWeather(ids, forceRefresh));
+    }
+
+    @PostMapping(value = "/cities/batch",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(
+            summary = "Get weather data for several cities",
+            description = "Same as GET /cities/batch with the city IDs sent as a JSON array, for lists "
+                    + "too long for a query string."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved weather data"),
+            @ApiResponse(responseCode = "400", description = "No city IDs given, or more than the configured maximum",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class))),
+            @ApiResponse(responseCode = "404", description = "One or more cities not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    public ResponseEntity<List<WeatherResponseDTO>> postCitiesWeather(
+            @RequestBody List<String> ids,
+
+            @Parameter(description = "Force refresh data from API (bypass cache)")
+            @RequestParam(defaultValue = "false") boolean forceRefresh) {
+
+        return ResponseEntity.ok(weatherService.getCitiesWeather(ids, forceRefresh));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Stream comfort ranking changes",
+            description = "Server-Sent Events. The stream opens with the full ranking (event \"ranking\") and "
+                    + "then sends one \"ranking-delta\" event per batch of refreshes, listing the cities whose "
+                    + "weather or rank changed. Clients that fall too far behind are disconnected and should "
+                    + "reconnect; a Last-Event-ID matching the current version skips the initial ranking."
+    )
+    @ApiResponse(responseCode = "200", description = "Event stream opened",
+            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                    schema = @Schema(implementation = RankingDeltaDTO.class)))
+    public ResponseBodyEmitter streamRankingChanges(
+            @Parameter(description = "Version of the last event received, sent by EventSource on reconnect")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        EventStreamEmitter emitter = new EventStreamEmitter(streamTimeoutMillis);
+        FrameSink sink = frame -> emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+        RankingSubscription subscription = weatherService.streamRankingChanges(sink, emitter::complete, lastEventId);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(failure -> subscription.close());
+        return emitter;
+    }
+
+    @GetMapping(value = "/cities/top",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @Operation(
+            summary = "Get the most comfortable cities",
+            description = "Returns the top N cities from the comfort index ranking, "
+                    + "as JSON, CBOR or Smile depending on the Accept header"
+    )
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved top cities")
+    public ResponseEntity<List<WeatherResponseDTO>> getTopCities(
+            @Parameter(description = "Number of cities to return", example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return ResponseEntity.ok(weatherService.getTopCities(limit));
+    }
+
+    @GetMapping("/rank/{cityId}")
+    @Operation(
+            summary = "Get the comfort rank of a city",
+            description = "Returns the city's position in the comfort index ranking"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved city rank"),
+            @ApiResponse(responseCode = "404", description = "City not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponseDTO.class)))
+    })
+    public ResponseEntity<Map<String, Object>> getCityRank(
+            @Parameter(description = "City ID", example = "1248991")
+            @PathVariable String cityId) {
+
+        return ResponseEntity.ok(weatherService.getCityRank(cityId));
     }
 
     @GetMapping("/comfort-index/{cityId}")
@@ -106,10 +315,14 @@ public class WeatherController {
             summary = "Get list of supported cities",
             description = "Returns the list of cities supported by the application"
     )
-    @ApiResponse(responseCode = "200", description = "Successfully retrieved city list")
-    public ResponseEntity<List<Map<String, Object>>> getSupportedCities() {
-        List<Map<String, Object>> cities = weatherService.getSupportedCities();
-        return ResponseEntity.ok(cities);
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved city list",
+            content = @Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(type = "object"))))
+    public ResponseEntity<byte[]> getSupportedCities() {
+        // The catalog is serialized once when it is loaded
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(weatherService.getSupportedCitiesJson());
     }
 
     @GetMapping("/health")
@@ -124,4 +337,175 @@ public class WeatherController {
         health.put("timestamp", LocalDateTime.now().toString());
         return ResponseEntity.ok(health);
     }
-}
\ No newline at end of file
+
+    private static ResponseEntity<byte[]> encodedRanking(EncodedRanking ranking, boolean gzip) {
+        CacheValidator validator = gzip ? ranking.validator().variant(GZIP) : ranking.validator();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(REVALIDATE)
+                .eTag(validator.etag())
+                .lastModified(validator.lastModifiedMillis())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .header(TOTAL_COUNT_HEADER, String.valueOf(ranking.size()));
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return builder.body(gzip ? ranking.gzip() : ranking.json());
+    }
+
+    /**
+     * The binary format the client prefers, or null for JSON. Accept is resolved
+     * through the MVC content negotiation strategy and each format takes the
+     * quality of the most specific range that matches it, so
+     * {@code application/json;q=0} rules JSON out even next to a wildcard.
+     * Responses set the chosen type explicitly, so the ETag variant and the
+     * pre-encoded JSON path always match the representation sent.
+     *
+     * @throws HttpMediaTypeNotAcceptableException (406) when none of the formats is acceptable
+     */
+    private MediaType binaryFormat(HttpServletRequest request) throws HttpMediaTypeNotAcceptableException {
+        List<MediaType> acceptable = contentNegotiationManager.resolveMediaTypes(new ServletWebRequest(request));
+        MediaType preferred = null;
+        double preferredQuality = 0;
+        for (MediaType format : FORMATS) {
+            double quality = quality(format, acceptable);
+            if (quality > preferredQuality) {
+                preferred = format;
+                preferredQuality = quality;
+            }
+        }
+        if (preferred == null) {
+            throw new HttpMediaTypeNotAcceptableException(FORMATS);
+        }
+        return preferred.equals(MediaType.APPLICATION_JSON) ? null : preferred;
+    }
+
+    private static double quality(MediaType format, List<MediaType> acceptable) {
+        MediaType match = null;
+        for (MediaType range : acceptable) {
+            if (range.includes(format) && (match == null || specificity(range) > specificity(match))) {
+                match = range;
+            }
+        }
+        return match != null ? match.getQualityValue() : 0;
+    }
+
+    private static int specificity(MediaType range) {
+        return range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+    }
+
+    private static CacheValidator variant(CacheValidator validator, MediaType format) {
+        return format != null ? validator.variant(format.getSubtype()) : validator;
+    }
+
+    private static ResponseEntity.BodyBuilder ok(CacheValidator validator, MediaType format) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .eTag(validator.etag())
+                .lastModified(validator.lastModifiedMillis())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (format != null) {
+            builder.contentType(format);
+        }
+        return builder;
+    }
+
+    /**
+     * Whether Accept-Encoding allows gzip (RFC 9110, 12.5.3): {@code gzip} or
+     * its alias {@code x-gzip} with a non-zero q-value, or else {@code *} with
+     * one. {@code gzip;q=0} refuses it even when {@code *} is also listed.
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String element : headers.nextElement().split(",")) {
+                String[] parts = element.split(";");
+                String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+                if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                    gzipQuality = Math.max(gzipQuality == null ? 0 : gzipQuality, codingQuality(parts));
+                } else if ("*".equals(coding)) {
+                    anyQuality = codingQuality(parts);
+                }
+            }
+        }
+        Double effective = gzipQuality != null ? gzipQuality : anyQuality;
+        return effective != null && effective > 0;
+    }
+
+    // A missing q means 1; a malformed one is read as 0, not as a preference
+    private static double codingQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q'
+                    && parameter.charAt(1) == '=') {
+                try {
+                    double q = Double.parseDouble(parameter.substring(2).trim());
+                    return q >= 0 && q <= 1 ? q : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Evaluates If-None-Match (weak comparison, as RFC 9110 requires for it)
+     * or, when absent, If-Modified-Since against the current validators.
+     */
+    private static boolean isNotModified(HttpServletRequest request, CacheValidator validator) {
+        Enumeration<String> ifNoneMatch = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.hasMoreElements()) {
+            while (ifNoneMatch.hasMoreElements()) {
+                for (String tag : ifNoneMatch.nextElement().split(",")) {
+                    tag = tag.trim();
+                    if (tag.startsWith("W/")) {
+                        tag = tag.substring(2);
+                    }
+                    if (tag.equals("*") || tag.equals(validator.etag())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have a resolution of one second
+        return ifModifiedSince >= 0 && validator.lastModifiedMillis() > 0
+                && validator.lastModifiedMillis() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static <T> ResponseEntity<T> notModified(CacheValidator validator) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(REVALIDATE)
+                .eTag(validator.etag())
+                .lastModified(validator.lastModifiedMillis())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    /**
+     * Emitter for pre-framed event bytes: unlike {@code SseEmitter} it adds no
+     * framing of its own, only the {@code text/event-stream} content type.
+     */
+    private static final class EventStreamEmitter extends ResponseBodyEmitter {
+
+        EventStreamEmitter(long timeoutMillis) {
+            super(timeoutMillis);
+        }
+
+        @Override
+        protected void extendResponse(ServerHttpResponse outputMessage) {
+            super.extendResponse(outputMessage);
+            outputMessage.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        }
+    }
+}
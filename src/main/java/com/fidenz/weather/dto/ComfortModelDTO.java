@@ -0,0 +1,122 @@
+package com.fidenz.weather.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Comfort model parameters: sub-score weights, scoring bands and level thresholds")
+public class ComfortModelDTO {
+
+    @Schema(description = "Model version, assigned when the model is applied", example = "1",
+            accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonProperty("version")
+    private Long version;
+
+    @JsonProperty("weights")
+    private Weights weights;
+
+    @Schema(description = "Temperature band in °C")
+    @JsonProperty("temperature")
+    private Band temperature;
+
+    @Schema(description = "Humidity band in %")
+    @JsonProperty("humidity")
+    private Band humidity;
+
+    @JsonProperty("wind")
+    private Wind wind;
+
+    @JsonProperty("levels")
+    private Levels levels;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Weight of each sub-score in the comfort score")
+    public static class Weights {
+        @Schema(example = "0.4")
+        @JsonProperty("temperature")
+        private Double temperature;
+
+        @Schema(example = "0.3")
+        @JsonProperty("humidity")
+        private Double humidity;
+
+        @Schema(example = "0.3")
+        @JsonProperty("wind")
+        private Double wind;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "100 inside [optimal_low, optimal_high], ramping down to 50 at low/high; "
+            + "outside, 50 minus outside_slope per unit beyond the optimal band (at least 0)")
+    public static class Band {
+        @Schema(example = "15")
+        @JsonProperty("low")
+        private Double low;
+
+        @Schema(example = "20")
+        @JsonProperty("optimal_low")
+        private Double optimalLow;
+
+        @Schema(example = "25")
+        @JsonProperty("optimal_high")
+        private Double optimalHigh;
+
+        @Schema(example = "30")
+        @JsonProperty("high")
+        private Double high;
+
+        @Schema(example = "10")
+        @JsonProperty("outside_slope")
+        private Double outsideSlope;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Wind in km/h: 100 up to optimal_kmh, 50 at moderate_kmh, "
+            + "then minus strong_slope per km/h (at least 0)")
+    public static class Wind {
+        @Schema(example = "5")
+        @JsonProperty("optimal_kmh")
+        private Double optimalKmh;
+
+        @Schema(example = "20")
+        @JsonProperty("moderate_kmh")
+        private Double moderateKmh;
+
+        @Schema(example = "2")
+        @JsonProperty("strong_slope")
+        private Double strongSlope;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Lowest score for each comfort level")
+    public static class Levels {
+        @Schema(example = "80")
+        @JsonProperty("very_comfortable")
+        private Double veryComfortable;
+
+        @Schema(example = "60")
+        @JsonProperty("comfortable")
+        private Double comfortable;
+
+        @Schema(example = "40")
+        @JsonProperty("moderate")
+        private Double moderate;
+
+        @Schema(example = "20")
+        @JsonProperty("uncomfortable")
+        private Double uncomfortable;
+    }
+}
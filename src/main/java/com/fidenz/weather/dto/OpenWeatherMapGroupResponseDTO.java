@@ -0,0 +1,14 @@
+package com.fidenz.weather.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Response of the OpenWeatherMap {@code /group?id=} endpoint: the current
+ * weather for several cities in one payload.
+ */
+@Data
+public class OpenWeatherMapGroupResponseDTO {
+    private Integer cnt;
+    private List<OpenWeatherMapResponseDTO> list;
+}
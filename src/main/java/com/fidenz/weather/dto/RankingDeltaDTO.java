@@ -0,0 +1,86 @@
+package com.fidenz.weather.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Changes to the comfort ranking since the previous stream event")
+public class RankingDeltaDTO {
+    @Schema(description = "Ranking version after the change; also the SSE event ID", example = "42")
+    @JsonProperty("version")
+    private long version;
+
+    @Schema(description = "Number of ranked cities after the change", example = "10")
+    @JsonProperty("total")
+    private int total;
+
+    @Schema(description = "Cities that were refreshed, re-scored or moved in the ranking")
+    @JsonProperty("changed")
+    private List<CityChange> changed;
+
+    @Schema(description = "IDs of cities no longer ranked")
+    @JsonProperty("removed")
+    private List<String> removed;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "New rank of a city, plus its weather when it changed; "
+            + "a city that only moved carries just city_id and rank")
+    public static class CityChange {
+        @Schema(example = "1248991")
+        @JsonProperty("city_id")
+        private String cityId;
+
+        @Schema(example = "3")
+        @JsonProperty("rank")
+        private Integer rank;
+
+        @Schema(example = "Colombo")
+        @JsonProperty("city_name")
+        private String cityName;
+
+        @Schema(example = "LK")
+        @JsonProperty("country")
+        private String country;
+
+        @Schema(example = "33.0")
+        @JsonProperty("temperature")
+        private Double temperature;
+
+        @Schema(example = "75.0")
+        @JsonProperty("humidity")
+        private Double humidity;
+
+        @Schema(example = "3.5")
+        @JsonProperty("wind_speed")
+        private Double windSpeed;
+
+        @Schema(example = "65.5")
+        @JsonProperty("comfort_score")
+        private Double comfortScore;
+
+        @Schema(example = "Comfortable")
+        @JsonProperty("comfort_level")
+        private String comfortLevel;
+
+        @Schema(example = "HIT")
+        @JsonProperty("cache_status")
+        private String cacheStatus;
+
+        @Schema(example = "2024-01-15T10:30:00")
+        @JsonProperty("timestamp")
+        private String timestamp;
+    }
+}
@@ -3,12 +3,14 @@ package com.fidenz.weather.dto;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 @Schema(description = "Weather data response with comfort index")
 public class WeatherResponseDTO {
     @Schema(description = "City ID from OpenWeatherMap", example = "1248991")
@@ -71,7 +73,7 @@ public class WeatherResponseDTO {
     @JsonProperty("rank")
     private Integer rank;
 
-    @Schema(description = "Cache status", example = "HIT")
+    @Schema(description = "Cache status (HIT/MISS/STALE/REFRESHING/FALLBACK)", example = "HIT")
     @JsonProperty("cache_status")
     private String cacheStatus;
 
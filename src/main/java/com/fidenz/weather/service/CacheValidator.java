@@ -0,0 +1,24 @@
+package com.fidenz.weather.service;
+
+/**
+ * Validators for a conditional GET: a strong entity tag and the time the
+ * resource last changed. Tags carry a per-process epoch, so a tag issued
+ * before a restart never matches a response built after it.
+ */
+public record CacheValidator(String etag, long lastModifiedMillis) {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    public static CacheValidator of(String tag, long lastModifiedMillis) {
+        return new CacheValidator("\"" + EPOCH + "-" + tag + "\"", lastModifiedMillis);
+    }
+
+    /**
+     * The validator of another representation of the same resource, such as a
+     * different content coding or media type; strong tags must differ
+     * between representations.
+     */
+    public CacheValidator variant(String name) {
+        return new CacheValidator(etag.substring(0, etag.length() - 1) + "-" + name + "\"", lastModifiedMillis);
+    }
+}
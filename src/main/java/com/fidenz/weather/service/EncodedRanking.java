@@ -0,0 +1,9 @@
+package com.fidenz.weather.service;
+
+/**
+ * The full comfort ranking of one snapshot version, serialized once as UTF-8
+ * JSON and as its gzip-compressed form. The arrays are shared and must not be
+ * modified.
+ */
+public record EncodedRanking(long version, CacheValidator validator, int size, byte[] json, byte[] gzip) {
+}
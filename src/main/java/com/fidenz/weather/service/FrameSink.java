@@ -0,0 +1,14 @@
+package com.fidenz.weather.service;
+
+import java.io.IOException;
+
+/**
+ * Destination of one ranking stream subscriber: receives complete,
+ * pre-framed {@code text/event-stream} events. The arrays are shared between
+ * subscribers and must not be modified.
+ */
+@FunctionalInterface
+public interface FrameSink {
+
+    void write(byte[] frame) throws IOException;
+}
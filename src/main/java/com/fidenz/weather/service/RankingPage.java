@@ -0,0 +1,12 @@
+package com.fidenz.weather.service;
+
+import com.fidenz.weather.dto.WeatherResponseDTO;
+
+import java.util.List;
+
+/**
+ * One page of the comfort ranking plus the number of cities that matched the
+ * query in total, and the validators of the ranking it was read from.
+ */
+public record RankingPage(List<WeatherResponseDTO> cities, int totalMatches, CacheValidator validator) {
+}
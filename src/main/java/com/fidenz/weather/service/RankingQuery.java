@@ -0,0 +1,30 @@
+package com.fidenz.weather.service;
+
+import com.fidenz.weather.dto.WeatherResponseDTO;
+
+/**
+ * Filter and page over the comfort ranking. Null filters match everything and
+ * a null {@code limit} returns every match from {@code offset} on.
+ */
+public record RankingQuery(Integer limit, int offset, String country, Double minScore, String comfortLevel) {
+
+    public static final RankingQuery ALL = new RankingQuery(null, 0, null, null, null);
+
+    public RankingQuery {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+    }
+
+    public boolean hasAttributeFilters() {
+        return country != null || comfortLevel != null;
+    }
+
+    public boolean matches(WeatherResponseDTO weather) {
+        return (country == null || country.equalsIgnoreCase(weather.getCountry()))
+                && (comfortLevel == null || comfortLevel.equalsIgnoreCase(weather.getComfortLevel()));
+    }
+}
@@ -0,0 +1,12 @@
+package com.fidenz.weather.service;
+
+/**
+ * An open ranking stream. Closing it stops delivery to its sink and runs the
+ * close callback given when subscribing; closing twice is harmless.
+ */
+public interface RankingSubscription {
+
+    void close();
+
+    boolean isClosed();
+}
@@ -2,7 +2,9 @@ package com.fidenz.weather.service;
 
 import com.fidenz.weather.dto.CacheStatusDTO;
 import com.fidenz.weather.dto.ComfortIndexResponse;
+import com.fidenz.weather.dto.ComfortModelDTO;
 import com.fidenz.weather.dto.WeatherResponseDTO;
+
 import java.util.List;
 import java.util.Map;
 
@@ -11,15 +13,32 @@ public interface WeatherService {
     // Weather data operations
     List<WeatherResponseDTO> getAllCitiesWeather(boolean forceRefresh);
     WeatherResponseDTO getCityWeather(String cityId, boolean forceRefresh);
+    List<WeatherResponseDTO> getCitiesWeather(List<String> cityIds, boolean forceRefresh);
+    CacheValidator getCityValidator(String cityId);
     ComfortIndexResponse calculateComfortIndexForCity(String cityId);
 
+    // Ranking operations
+    RankingPage getRankedCities(RankingQuery query, boolean forceRefresh);
+    EncodedRanking getEncodedRanking(boolean forceRefresh);
+    CacheValidator getRankingValidator();
+    RankingSubscription streamRankingChanges(FrameSink sink, Runnable onClose, String lastEventId);
+    List<WeatherResponseDTO> getTopCities(int limit);
+    Map<String, Object> getCityRank(String cityId);
+
     // Cache operations
     CacheStatusDTO getCacheStatus(String cityId);
     Map<String, Object> getCacheStatistics();
     void clearCacheForCity(String cityId);
     void clearAllCache();
 
+    // Comfort model operations
+    ComfortModelDTO getComfortModel();
+    ComfortModelDTO updateComfortModel(ComfortModelDTO definition);
+    ComfortModelDTO reloadComfortModel();
+
     // Utility operations
     List<Map<String, Object>> getSupportedCities();
+
+    byte[] getSupportedCitiesJson();
     Map<String, Object> getSystemInfo();
 }
\ No newline at end of file
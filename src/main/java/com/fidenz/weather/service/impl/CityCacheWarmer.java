@@ -0,0 +1,157 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.CityDTO;
+import com.fidenz.weather.util.RequestBudget;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps every city in the catalog warm in the {@code cityWeather} cache so that
+ * foreground requests are served from memory. The catalog is split into groups
+ * of {@code group-size} cities at startup and each group is then refreshed in
+ * the background, through one upstream group request, every {@code interval}
+ * seconds plus or minus a random jitter. Group requests are paced by a
+ * requests-per-minute budget; when the budget cannot cover every group within
+ * the interval, the interval is stretched to what it can cover instead of
+ * letting the schedule fall further behind on each cycle.
+ * <p>
+ * When the catalog is reloaded, the next group due is not refreshed; the
+ * groups are rebuilt from the new catalog instead and the old ones stop, so
+ * added cities are warmed and removed ones are no longer fetched.
+ */
+@Component
+@Slf4j
+public class CityCacheWarmer {
+
+    private final CityWeatherLoader cityWeatherLoader;
+    private final CityRegistry cityRegistry;
+    private final TaskScheduler taskScheduler;
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final long jitterMillis;
+    private final RequestBudget budget;
+
+    private volatile long cycleMillis;
+    // Catalog version the scheduled groups were built from; groups of any
+    // other version are dropped when they come due
+    private final AtomicLong plannedVersion = new AtomicLong(-1);
+
+    public CityCacheWarmer(
+            CityWeatherLoader cityWeatherLoader,
+            CityRegistry cityRegistry,
+            TaskScheduler taskScheduler,
+            @Value("${weather.prewarm.enabled:true}") boolean enabled,
+            @Value("${weather.prewarm.interval-seconds:240}") long intervalSeconds,
+            @Value("${weather.prewarm.jitter-seconds:30}") long jitterSeconds,
+            @Value("${weather.prewarm.max-requests-per-minute:60}") int maxRequestsPerMinute) {
+        this.cityWeatherLoader = cityWeatherLoader;
+        this.cityRegistry = cityRegistry;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+        this.jitterMillis = TimeUnit.SECONDS.toMillis(jitterSeconds);
+        this.budget = new RequestBudget(maxRequestsPerMinute);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            log.info("City cache pre-warming is disabled");
+            return;
+        }
+        long version = cityRegistry.getVersion();
+        plannedVersion.set(version);
+        schedule(version);
+    }
+
+    private void schedule(long version) {
+        List<CityDTO> cities = cityRegistry.getCities();
+        if (cities.size() > cityWeatherLoader.getMaximumSize()) {
+            log.warn("Catalog has {} cities but cityWeather holds at most {}; pre-warmed entries will be evicted",
+                    cities.size(), cityWeatherLoader.getMaximumSize());
+        }
+
+        int groupSize = Math.max(1, cityWeatherLoader.getGroupSize());
+        List<List<String>> groups = new ArrayList<>((cities.size() + groupSize - 1) / groupSize);
+        for (int from = 0; from < cities.size(); from += groupSize) {
+            List<String> group = new ArrayList<>(groupSize);
+            for (CityDTO city : cities.subList(from, Math.min(from + groupSize, cities.size()))) {
+                group.add(city.getCityCode());
+            }
+            groups.add(group);
+        }
+
+        long budgetCycleMillis = groups.size() * budget.getSpacingMillis();
+        cycleMillis = Math.max(intervalMillis, budgetCycleMillis);
+        if (budgetCycleMillis > intervalMillis) {
+            log.warn("{} refresh groups need {}s at the request budget, more than the {}s interval; "
+                            + "refreshing each group every {}s instead",
+                    groups.size(), TimeUnit.MILLISECONDS.toSeconds(budgetCycleMillis),
+                    TimeUnit.MILLISECONDS.toSeconds(intervalMillis), TimeUnit.MILLISECONDS.toSeconds(cycleMillis));
+        }
+
+        log.info("Pre-warming {} cities in {} groups (every {}s ± {}s, one upstream call per {} ms)",
+                cities.size(), groups.size(), TimeUnit.MILLISECONDS.toSeconds(cycleMillis),
+                TimeUnit.MILLISECONDS.toSeconds(jitterMillis), budget.getSpacingMillis());
+
+        long now = System.currentTimeMillis();
+        for (List<String> group : groups) {
+            scheduleWithinBudget(group, version, now);
+        }
+    }
+
+    private void refresh(List<String> cityIds, long version) {
+        if (plannedVersion.get() != version) {
+            return;
+        }
+        long current = cityRegistry.getVersion();
+        if (current != version) {
+            // Only the first group to notice the reload rebuilds the schedule
+            if (plannedVersion.compareAndSet(version, current)) {
+                log.info("City catalog reloaded, rebuilding the pre-warm groups");
+                schedule(current);
+            }
+            return;
+        }
+        try {
+            cityWeatherLoader.refreshGroup(cityIds).exceptionally(e -> {
+                log.warn("Background refresh failed for {} cities starting at {}: {}",
+                        cityIds.size(), cityIds.get(0), e.getMessage());
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Background refresh failed for {} cities starting at {}: {}",
+                    cityIds.size(), cityIds.get(0), e.getMessage());
+        } finally {
+            scheduleWithinBudget(cityIds, version, System.currentTimeMillis() + cycleMillis + jitter());
+        }
+    }
+
+    private void scheduleWithinBudget(List<String> cityIds, long version, long earliestMillis) {
+        long startAt = budget.reserve(earliestMillis);
+        if (startAt - earliestMillis > cycleMillis) {
+            log.warn("Pre-warming is running {}s behind schedule",
+                    TimeUnit.MILLISECONDS.toSeconds(startAt - earliestMillis));
+        }
+        taskScheduler.schedule(() -> refresh(cityIds, version), Instant.ofEpochMilli(startAt));
+    }
+
+    private long jitter() {
+        if (jitterMillis <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+    }
+}
@@ -0,0 +1,311 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.CityDTO;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar, immutable city catalog. Each city is a row across a few arrays
+ * instead of a {@link CityDTO} with four Strings: ids are {@code long}s,
+ * statuses an index into a small dictionary, and names and temperatures are
+ * de-duplicated so repeated values share one String. Every value reads back
+ * exactly as it appeared in the source; the few codes that are not the
+ * canonical form of their id (leading zeros) are kept on the side.
+ * <p>
+ * Lookups by id use an open-addressing table of row indexes (O(1)); lookups by
+ * name binary-search a case-insensitive sort order. {@link CityDTO}s are only
+ * created on access.
+ */
+final class CityCatalog {
+
+    private final long[] ids;
+    private final Map<Integer, String> nonCanonicalCodes;
+    private final String[] names;
+    private final String[] temps;
+    private final short[] statusCodes;
+    private final String[] statuses;
+    private final int[] idTable;
+    private final int[] nameOrder;
+
+    private CityCatalog(long[] ids, Map<Integer, String> nonCanonicalCodes, String[] names, String[] temps,
+                        short[] statusCodes, String[] statuses, int[] idTable) {
+        this.ids = ids;
+        this.nonCanonicalCodes = nonCanonicalCodes;
+        this.names = names;
+        this.temps = temps;
+        this.statusCodes = statusCodes;
+        this.statuses = statuses;
+        this.idTable = idTable;
+        this.nameOrder = buildNameOrder(names);
+    }
+
+    static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Row index of the city, or -1 if it is not in the catalog. The code must
+     * match the source exactly, leading zeros included.
+     */
+    int indexOf(String cityCode) {
+        long id = parseId(cityCode);
+        if (id < 0) {
+            return -1;
+        }
+        int row = indexOf(id);
+        return row >= 0 && code(row).equals(cityCode) ? row : -1;
+    }
+
+    int indexOf(long id) {
+        int mask = idTable.length - 1;
+        for (int slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            int row = idTable[slot] - 1;
+            if (row < 0) {
+                return -1;
+            }
+            if (ids[row] == id) {
+                return row;
+            }
+        }
+    }
+
+    long id(int row) {
+        return ids[row];
+    }
+
+    String code(int row) {
+        String code = nonCanonicalCodes.isEmpty() ? null : nonCanonicalCodes.get(row);
+        return code != null ? code : Long.toString(ids[row]);
+    }
+
+    String name(int row) {
+        return names[row];
+    }
+
+    String temp(int row) {
+        return temps[row];
+    }
+
+    String status(int row) {
+        return statuses[statusCodes[row]];
+    }
+
+    CityDTO city(int row) {
+        return new CityDTO(code(row), name(row), temp(row), status(row));
+    }
+
+    /**
+     * Row indexes of cities with the given name, ignoring case, in catalog order.
+     */
+    int[] rowsByName(String name) {
+        int low = 0;
+        int high = nameOrder.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(sortName(nameOrder[mid]), name) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < nameOrder.length && sortName(nameOrder[end]).equalsIgnoreCase(name)) {
+            end++;
+        }
+        int[] rows = Arrays.copyOfRange(nameOrder, low, end);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Read-only list view that materializes a {@link CityDTO} per access.
+     */
+    List<CityDTO> asList() {
+        return new CityListView();
+    }
+
+    private String sortName(int row) {
+        return names[row] == null ? "" : names[row];
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableCapacity(int rows) {
+        return Integer.highestOneBit(Math.max(1, rows)) << 2;
+    }
+
+    private static int[] buildNameOrder(String[] names) {
+        Comparator<String> byName = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+        return IntStream.range(0, names.length)
+                .boxed()
+                .sorted((a, b) -> byName.compare(names[a], names[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    static long parseId(String cityCode) {
+        if (cityCode == null || cityCode.isEmpty() || cityCode.length() > 18) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < cityCode.length(); i++) {
+            char c = cityCode.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    private class CityListView extends AbstractList<CityDTO> implements RandomAccess {
+        @Override
+        public CityDTO get(int index) {
+            return city(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * Accumulates rows from a streaming parse. Duplicate ids keep the first row.
+     */
+    static final class Builder {
+        private long[] ids;
+        private String[] names;
+        private String[] temps;
+        private short[] statusCodes;
+        private int size;
+
+        private final Map<Integer, String> nonCanonicalCodes = new HashMap<>();
+        private final Map<String, String> valuePool = new HashMap<>();
+        private final Map<String, Short> statusDictionary = new HashMap<>();
+        private String[] statuses = new String[8];
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            ids = new long[capacity];
+            names = new String[capacity];
+            temps = new String[capacity];
+            statusCodes = new short[capacity];
+        }
+
+        /**
+         * Adds a city; returns false if the code is not a numeric id or is
+         * already in the catalog.
+         */
+        boolean add(String cityCode, String cityName, String temp, String status) {
+            long id = parseId(cityCode);
+            if (id < 0) {
+                return false;
+            }
+            ensureCapacity();
+            ids[size] = id;
+            if (!cityCode.equals(Long.toString(id))) {
+                nonCanonicalCodes.put(size, cityCode);
+            }
+            names[size] = pooled(cityName);
+            temps[size] = pooled(temp);
+            statusCodes[size] = statusCode(status);
+            size++;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        CityCatalog build() {
+            long[] uniqueIds = new long[size];
+            Map<Integer, String> uniqueNonCanonicalCodes = new HashMap<>();
+            String[] uniqueNames = new String[size];
+            String[] uniqueTemps = new String[size];
+            short[] uniqueStatusCodes = new short[size];
+
+            // Row indexes + 1, so 0 marks an empty slot; at most half full
+            int[] table = new int[tableCapacity(size)];
+            int mask = table.length - 1;
+            int count = 0;
+            rows:
+            for (int row = 0; row < size; row++) {
+                long id = ids[row];
+                int slot = mix(id) & mask;
+                while (table[slot] != 0) {
+                    if (uniqueIds[table[slot] - 1] == id) {
+                        continue rows;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = count + 1;
+                uniqueIds[count] = id;
+                String nonCanonicalCode = nonCanonicalCodes.get(row);
+                if (nonCanonicalCode != null) {
+                    uniqueNonCanonicalCodes.put(count, nonCanonicalCode);
+                }
+                uniqueNames[count] = names[row];
+                uniqueTemps[count] = temps[row];
+                uniqueStatusCodes[count] = statusCodes[row];
+                count++;
+            }
+
+            return new CityCatalog(
+                    Arrays.copyOf(uniqueIds, count),
+                    Map.copyOf(uniqueNonCanonicalCodes),
+                    Arrays.copyOf(uniqueNames, count),
+                    Arrays.copyOf(uniqueTemps, count),
+                    Arrays.copyOf(uniqueStatusCodes, count),
+                    Arrays.copyOf(statuses, statusDictionary.size()),
+                    table);
+        }
+
+        private void ensureCapacity() {
+            if (size < ids.length) {
+                return;
+            }
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            temps = Arrays.copyOf(temps, capacity);
+            statusCodes = Arrays.copyOf(statusCodes, capacity);
+        }
+
+        private short statusCode(String status) {
+            Short code = statusDictionary.get(status);
+            if (code != null) {
+                return code;
+            }
+            int next = statusDictionary.size();
+            if (next > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct city statuses in the catalog");
+            }
+            if (next == statuses.length) {
+                statuses = Arrays.copyOf(statuses, next * 2);
+            }
+            statuses[next] = status;
+            statusDictionary.put(status, (short) next);
+            return (short) next;
+        }
+
+        // Names and temperatures repeat a lot across a large catalog
+        private String pooled(String value) {
+            return value == null ? null : valuePool.computeIfAbsent(value, v -> v);
+        }
+    }
+}
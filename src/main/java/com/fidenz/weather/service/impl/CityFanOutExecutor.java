@@ -0,0 +1,184 @@
+package com.fidenz.weather.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Fans batches of cities out as composed futures so the all-cities path costs
+ * roughly the slowest upstream call instead of the sum of all of them. Each
+ * batch is loaded by one call. At most {@code max-concurrency} batches are in
+ * flight at once; a new one is started as each completes, without parking a
+ * thread per batch. Batches that fail or exceed their timeout are dropped from
+ * the result; the rest are returned in input order.
+ */
+@Component
+@Slf4j
+public class CityFanOutExecutor {
+
+    private final int maxConcurrency;
+    private final long cityTimeoutMs;
+    private final long totalTimeoutMs;
+
+    private volatile Map<String, Long> lastRunTimings = Map.of();
+
+    public CityFanOutExecutor(
+            @Value("${weather.fanout.max-concurrency:32}") int maxConcurrency,
+            @Value("${weather.fanout.city-timeout-ms:5000}") long cityTimeoutMs,
+            @Value("${weather.fanout.total-timeout-ms:15000}") long totalTimeoutMs) {
+        this.maxConcurrency = maxConcurrency;
+        this.cityTimeoutMs = cityTimeoutMs;
+        this.totalTimeoutMs = totalTimeoutMs;
+    }
+
+    /**
+     * Loads each batch with one fetcher call and returns the results of the
+     * batches that completed, flattened in input order. Timings are recorded
+     * per batch, as {@code batch-NNN (size cities)}.
+     */
+    public <T> List<T> fetchAllBatches(List<List<String>> batches,
+                                       Function<List<String>, CompletableFuture<List<T>>> fetcher) {
+        List<String> labels = new ArrayList<>(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            labels.add(String.format("batch-%03d (%d cities)", i + 1, batches.get(i).size()));
+        }
+        List<T> results = new ArrayList<>();
+        run(batches, labels, fetcher).forEach(results::addAll);
+        return results;
+    }
+
+    private <K, T> List<T> run(List<K> keys, List<String> labels, Function<K, CompletableFuture<T>> fetcher) {
+        long start = System.nanoTime();
+        Map<String, Long> timings = new ConcurrentHashMap<>();
+        Window<K, T> window = new Window<>(keys, labels, fetcher, timings);
+        window.drain();
+
+        try {
+            CompletableFuture.allOf(window.slots.toArray(new CompletableFuture[0]))
+                    .get(totalTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Fan-out over {} batches exceeded {} ms, returning partial results",
+                    keys.size(), totalTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Individual failures are handled per slot below
+        }
+        window.cancelled.set(true);
+
+        List<T> results = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            CompletableFuture<T> slot = window.slots.get(i);
+            String label = labels.get(i);
+            if (!slot.isDone()) {
+                slot.cancel(false);
+                log.warn("{} did not complete within the fan-out window", label);
+            } else if (slot.isCompletedExceptionally()) {
+                log.error("Error fetching weather for {}: {}", label, failureMessage(slot));
+            } else {
+                T result = slot.join();
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+        }
+
+        lastRunTimings = Collections.unmodifiableMap(new TreeMap<>(timings));
+        log.info("Fan-out completed {}/{} batches in {} ms", results.size(), keys.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return results;
+    }
+
+    /**
+     * Wall time in milliseconds per batch for the most recent fan-out run.
+     */
+    public Map<String, Long> getLastRunTimings() {
+        return lastRunTimings;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    private static String failureMessage(CompletableFuture<?> future) {
+        try {
+            future.join();
+            return "unknown";
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause instanceof TimeoutException ? "timed out" : cause.getMessage();
+        }
+    }
+
+    /**
+     * Sliding window over the batches. {@link #drain()} uses a work-in-progress
+     * counter so completions that arrive synchronously (cache hits) queue more
+     * work for the thread already draining instead of recursing.
+     */
+    private class Window<K, T> {
+        private final List<K> keys;
+        private final List<String> labels;
+        private final Function<K, CompletableFuture<T>> fetcher;
+        private final Map<String, Long> timings;
+        private final List<CompletableFuture<T>> slots;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private int next;
+
+        Window(List<K> keys, List<String> labels, Function<K, CompletableFuture<T>> fetcher,
+               Map<String, Long> timings) {
+            this.keys = keys;
+            this.labels = labels;
+            this.fetcher = fetcher;
+            this.timings = timings;
+            this.slots = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                slots.add(new CompletableFuture<>());
+            }
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!cancelled.get() && next < keys.size() && active.get() < maxConcurrency) {
+                    active.incrementAndGet();
+                    launch(next++);
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        private void launch(int index) {
+            String label = labels.get(index);
+            long start = System.nanoTime();
+            CompletableFuture<T> call;
+            try {
+                call = fetcher.apply(keys.get(index));
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+
+            call.orTimeout(cityTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((result, failure) -> {
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                timings.put(label, elapsedMs);
+                log.debug("Fetched {} in {} ms", label, elapsedMs);
+
+                if (failure != null) {
+                    slots.get(index).completeExceptionally(failure);
+                } else {
+                    slots.get(index).complete(result);
+                }
+                active.decrementAndGet();
+                drain();
+            });
+        }
+    }
+}
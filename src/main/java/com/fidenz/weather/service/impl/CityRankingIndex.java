@@ -0,0 +1,202 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.service.CacheValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Comfort ranking of the catalog cities, kept up to date as individual cities
+ * are refreshed. Each update is a remove/insert in a skip list ordered by score
+ * (descending) and city ID, so it costs O(log n) instead of a full re-sort.
+ * Readers get an immutable {@link RankingSnapshot} that is rebuilt lazily, at
+ * most once per change, by walking the already-ordered entries.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CityRankingIndex {
+
+    private static final Comparator<RankKey> ORDER = Comparator
+            .comparingDouble(RankKey::score).reversed()
+            .thenComparing(RankKey::cityId);
+
+    private final CityRegistry cityRegistry;
+
+    private final ConcurrentSkipListMap<RankKey, WeatherResponseDTO> ranking = new ConcurrentSkipListMap<>(ORDER);
+    private final Map<String, RankKey> keysByCity = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile long lastModifiedMillis;
+    private volatile RankingSnapshot snapshot = RankingSnapshot.EMPTY;
+
+    @EventListener
+    public void onCityWeatherUpdated(CityWeatherUpdatedEvent event) {
+        if (cityRegistry.contains(event.cityId())) {
+            update(event.cityId(), event.weather());
+        }
+    }
+
+    @EventListener
+    public void onCityWeatherEvicted(CityWeatherEvictedEvent event) {
+        remove(event.cityId());
+    }
+
+    public void update(String cityId, WeatherResponseDTO weather) {
+        RankKey key = new RankKey(scoreOf(weather), cityId);
+        writeLock.lock();
+        try {
+            RankKey previous = keysByCity.put(cityId, key);
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+            ranking.put(key, weather);
+            changed();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(String cityId) {
+        writeLock.lock();
+        try {
+            RankKey previous = keysByCity.remove(cityId);
+            if (previous != null) {
+                ranking.remove(previous);
+                changed();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean contains(String cityId) {
+        return keysByCity.containsKey(cityId);
+    }
+
+    public int size() {
+        return keysByCity.size();
+    }
+
+    /**
+     * Number of catalog cities not ranked yet, in O(1). Only catalog cities
+     * are ranked, and cities leave the ranking when they leave the cache.
+     */
+    public int missingCount() {
+        return Math.max(0, cityRegistry.size() - keysByCity.size());
+    }
+
+    public boolean isComplete() {
+        return missingCount() == 0;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Validators for the current ranking, read without building a snapshot.
+     */
+    public CacheValidator validator() {
+        return RankingSnapshot.validator(version.get(), lastModifiedMillis);
+    }
+
+    public RankingSnapshot snapshot() {
+        RankingSnapshot current = snapshot;
+        if (current.version() == version.get()) {
+            return current;
+        }
+
+        writeLock.lock();
+        try {
+            current = snapshot;
+            long currentVersion = version.get();
+            if (current.version() != currentVersion) {
+                current = buildSnapshot(currentVersion);
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} most comfortable cities, read straight off the ordered
+     * index without materialising the full snapshot. The walk holds the
+     * write lock, since an update removes and re-inserts the city's key.
+     */
+    public List<WeatherResponseDTO> topN(int limit) {
+        RankingSnapshot current = snapshot;
+        if (current.version() == version.get()) {
+            return current.cities().subList(0, Math.min(limit, current.size()));
+        }
+
+        writeLock.lock();
+        try {
+            List<WeatherResponseDTO> top = new ArrayList<>(Math.min(limit, ranking.size()));
+            int rank = 0;
+            for (WeatherResponseDTO weather : ranking.values()) {
+                if (rank >= limit) {
+                    break;
+                }
+                top.add(ranked(weather, ++rank));
+            }
+            return Collections.unmodifiableList(top);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Integer rankOf(String cityId) {
+        return snapshot().rankOf(cityId);
+    }
+
+    private RankingSnapshot buildSnapshot(long snapshotVersion) {
+        List<WeatherResponseDTO> cities = new ArrayList<>(ranking.size());
+        Map<String, Integer> ranks = new HashMap<>(ranking.size() * 2);
+
+        int rank = 0;
+        for (Map.Entry<RankKey, WeatherResponseDTO> entry : ranking.entrySet()) {
+            rank++;
+            cities.add(ranked(entry.getValue(), rank));
+            ranks.put(entry.getKey().cityId(), rank);
+        }
+
+        log.debug("Rebuilt ranking snapshot v{} with {} cities", snapshotVersion, cities.size());
+        return new RankingSnapshot(snapshotVersion, lastModifiedMillis, Collections.unmodifiableList(cities),
+                Collections.unmodifiableMap(ranks));
+    }
+
+    // Called under the write lock
+    private void changed() {
+        lastModifiedMillis = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    // Ranked cities are served from the cache, so the MISS of the load that
+    // ranked them reads as HIT; STALE, REFRESHING and FALLBACK are kept
+    private static WeatherResponseDTO ranked(WeatherResponseDTO weather, int rank) {
+        String cacheStatus = "MISS".equals(weather.getCacheStatus()) ? "HIT" : weather.getCacheStatus();
+        return weather.toBuilder()
+                .rank(rank)
+                .cacheStatus(cacheStatus)
+                .build();
+    }
+
+    private static double scoreOf(WeatherResponseDTO weather) {
+        return weather.getComfortScore() != null ? weather.getComfortScore() : 0.0;
+    }
+
+    private record RankKey(double score, String cityId) {
+    }
+}
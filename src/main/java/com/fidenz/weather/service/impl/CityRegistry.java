@@ -0,0 +1,262 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.CityDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The city catalog, loaded once at startup and indexed by city code and by
+ * (case-insensitive) name. All views are built up front and published together
+ * through one volatile reference, so readers never see a half-built catalog.
+ * {@link #reload()} builds a fresh catalog and swaps it in the same way.
+ * <p>
+ * {@code weather.cities.location} may name a JSON file or a directory of JSON
+ * files, each an array of {@code {CityCode, CityName, Temp, Status}} objects.
+ * Files are read with the Jackson streaming parser straight into a columnar
+ * {@link CityCatalog}, so catalogs of a few hundred thousand cities never exist
+ * as one {@link CityDTO} per city.
+ */
+@Component
+@Slf4j
+public class CityRegistry {
+
+    private final ObjectMapper objectMapper;
+    private final Resource location;
+
+    private final AtomicLong versions = new AtomicLong();
+
+    private volatile Catalog catalog;
+
+    public CityRegistry(
+            ObjectMapper objectMapper,
+            @Value("${weather.cities.location:classpath:cities.json}") Resource location) {
+        this.objectMapper = objectMapper;
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void load() {
+        long start = System.nanoTime();
+        CityCatalog cities;
+        try {
+            cities = read(location);
+            log.info("Loaded {} cities from {} in {} ms", cities.size(), location.getDescription(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Error loading city catalog from {}: {}", location.getDescription(), e.getMessage());
+            cities = getDefaultCities();
+        }
+        catalog = buildCatalog(cities);
+    }
+
+    public List<CityDTO> getCities() {
+        return catalog.cities().asList();
+    }
+
+    public CityDTO findByCode(String cityCode, CityDTO defaultCity) {
+        CityCatalog cities = catalog.cities();
+        int row = cities.indexOf(cityCode);
+        return row < 0 ? defaultCity : cities.city(row);
+    }
+
+    /**
+     * Cities with the given name, ignoring case. Several cities can share a name.
+     */
+    public List<CityDTO> findByName(String cityName) {
+        CityCatalog cities = catalog.cities();
+        int[] rows = cities.rowsByName(cityName);
+        List<CityDTO> matches = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            matches.add(cities.city(row));
+        }
+        return Collections.unmodifiableList(matches);
+    }
+
+    public boolean contains(String cityCode) {
+        return catalog.cities().indexOf(cityCode) >= 0;
+    }
+
+    public int size() {
+        return catalog.cities().size();
+    }
+
+    /**
+     * Increases every time a catalog is loaded, so holders of a derived view
+     * can tell when {@link #reload()} has swapped it.
+     */
+    public long getVersion() {
+        return catalog.version();
+    }
+
+    /**
+     * Immutable cityCode/cityName/status/temp view of the catalog, as returned
+     * by the supported-cities endpoint.
+     */
+    public List<Map<String, Object>> getSupportedCities() {
+        return catalog.supportedCities();
+    }
+
+    /**
+     * {@link #getSupportedCities()} serialized to JSON once per load. The array
+     * is shared and must not be modified.
+     */
+    public byte[] getSupportedCitiesJson() {
+        return catalog.supportedCitiesJson();
+    }
+
+    public void reload() {
+        load();
+    }
+
+    private CityCatalog read(Resource resource) throws IOException {
+        CityCatalog.Builder builder = CityCatalog.builder(1024);
+        int rejected = 0;
+        for (Resource file : catalogFiles(resource)) {
+            try (InputStream in = file.getInputStream()) {
+                rejected += parse(in, builder);
+            }
+        }
+        if (rejected > 0) {
+            log.warn("Skipped {} catalog entries without a numeric CityCode", rejected);
+        }
+        if (builder.size() == 0) {
+            throw new IOException("no cities found");
+        }
+        CityCatalog cities = builder.build();
+        if (cities.size() < builder.size()) {
+            log.warn("Dropped {} duplicate city codes, keeping the first entry of each",
+                    builder.size() - cities.size());
+        }
+        return cities;
+    }
+
+    private static List<Resource> catalogFiles(Resource resource) {
+        File directory = null;
+        try {
+            directory = resource.getFile();
+        } catch (IOException e) {
+            // Not on the file system (e.g. inside a jar); read it as a single stream
+        }
+        if (directory == null || !directory.isDirectory()) {
+            return List.of(resource);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return List.of();
+        }
+        Arrays.sort(files);
+        List<Resource> resources = new ArrayList<>(files.length);
+        for (File file : files) {
+            resources.add(new FileSystemResource(file));
+        }
+        return resources;
+    }
+
+    /**
+     * Streams one JSON array of cities into the builder and returns the number
+     * of entries that were rejected.
+     */
+    private int parse(InputStream in, CityCatalog.Builder builder) throws IOException {
+        int rejected = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("expected a JSON array of cities");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String code = null;
+                String name = null;
+                String temp = null;
+                String status = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "CityCode" -> code = parser.getValueAsString();
+                        case "CityName" -> name = parser.getValueAsString();
+                        case "Temp" -> temp = parser.getValueAsString();
+                        case "Status" -> status = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (!builder.add(code, name, temp, status)) {
+                    rejected++;
+                }
+            }
+        }
+        return rejected;
+    }
+
+    private Catalog buildCatalog(CityCatalog cities) {
+        List<Map<String, Object>> supportedView = new SupportedCitiesView(cities);
+        return new Catalog(versions.incrementAndGet(), cities, supportedView, serialize(supportedView));
+    }
+
+    private byte[] serialize(List<Map<String, Object>> supportedCities) {
+        try {
+            return objectMapper.writeValueAsBytes(supportedCities);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the city catalog", e);
+        }
+    }
+
+    private CityCatalog getDefaultCities() {
+        CityCatalog.Builder builder = CityCatalog.builder(8);
+        builder.add("1248991", "Colombo", "33.0", "Clouds");
+        builder.add("1850147", "Tokyo", "8.6", "Clear");
+        builder.add("2644210", "Liverpool", "16.5", "Rain");
+        builder.add("2988507", "Paris", "22.4", "Clear");
+        builder.add("2147714", "Sydney", "27.3", "Rain");
+        builder.add("4930956", "Boston", "4.2", "Mist");
+        builder.add("1796236", "Shanghai", "10.1", "Clouds");
+        builder.add("3143244", "Oslo", "-3.9", "Clear");
+        return builder.build();
+    }
+
+    /**
+     * Supported-cities rows built on access from the columnar catalog.
+     */
+    private static class SupportedCitiesView extends AbstractList<Map<String, Object>> implements RandomAccess {
+        private final CityCatalog cities;
+
+        SupportedCitiesView(CityCatalog cities) {
+            this.cities = cities;
+        }
+
+        @Override
+        public Map<String, Object> get(int row) {
+            Map<String, Object> cityInfo = new LinkedHashMap<>();
+            cityInfo.put("cityCode", cities.code(row));
+            cityInfo.put("cityName", cities.name(row));
+            cityInfo.put("status", cities.status(row));
+            cityInfo.put("temp", cities.temp(row));
+            return Collections.unmodifiableMap(cityInfo);
+        }
+
+        @Override
+        public int size() {
+            return cities.size();
+        }
+    }
+
+    private record Catalog(
+            long version,
+            CityCatalog cities,
+            List<Map<String, Object>> supportedCities,
+            byte[] supportedCitiesJson) {
+    }
+}
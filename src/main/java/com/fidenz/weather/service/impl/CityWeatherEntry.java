@@ -0,0 +1,10 @@
+package com.fidenz.weather.service.impl;
+
+/**
+ * Value stored in the {@code cityWeather} cache: the raw observation plus the
+ * wall-clock time it was fetched, used to decide HIT/STALE/REFRESHING on read.
+ * The scored response is derived from it on every read. {@code generation}
+ * increases with every entry loaded and identifies it in entity tags.
+ */
+record CityWeatherEntry(WeatherObservation observation, long fetchedAtMillis, long generation) {
+}
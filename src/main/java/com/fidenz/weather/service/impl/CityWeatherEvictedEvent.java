@@ -0,0 +1,8 @@
+package com.fidenz.weather.service.impl;
+
+/**
+ * Published by {@link CityWeatherLoader} when a city's cached weather is
+ * explicitly evicted.
+ */
+public record CityWeatherEvictedEvent(String cityId) {
+}
@@ -0,0 +1,719 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.client.OpenWeatherMapEndpoint;
+import com.fidenz.weather.client.WeatherProvider;
+import com.fidenz.weather.dto.*;
+import com.fidenz.weather.service.CacheValidator;
+import com.fidenz.weather.util.ComfortIndexCalculator;
+import com.fidenz.weather.util.MicroBatcher;
+import com.fidenz.weather.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the {@code cityWeather} cache. Both the single-city and the all-cities
+ * paths go through {@link #getAsync(String)}, so a city is fetched from upstream at
+ * most once per TTL no matter which endpoint asked for it. The cache is also
+ * registered with the {@link CacheManager} so statistics and clear-all keep
+ * working through the usual Spring cache abstraction.
+ * <p>
+ * In refresh-ahead mode an entry older than {@code refresh-after} is reloaded in
+ * the background on the next read while callers keep getting the stale value
+ * (reported as STALE/REFRESHING). Entries older than {@code max-staleness} are
+ * expired, so the next read falls back to a synchronous fetch.
+ * <p>
+ * Loads are asynchronous end to end: the {@link WeatherProvider} returns a
+ * future, and no thread is parked while a city is being fetched. Bulk misses
+ * through {@link #getAllAsync(List)} are fetched with the upstream group
+ * endpoint, up to {@code group-size} cities per request. With
+ * {@code weather.provider.batch.enabled}, single-city fetches of catalog cities
+ * that arrive within a few milliseconds of each other are collected and fetched
+ * the same way; they still go through the per-city single flight, so duplicates
+ * are coalesced and a city missing from the group response only falls back on
+ * its own.
+ * <p>
+ * Loads publish their entry to the ranking unless the city was evicted or
+ * replaced after the load started, in which case the cache discards the
+ * result too; the ranking therefore never lists a city the cache dropped.
+ * Group refreshes publish after they have stored their entries.
+ * <p>
+ * The cache holds compact raw {@link WeatherObservation}s, not responses. The
+ * scored {@link WeatherResponseDTO} is derived on every read with the current
+ * comfort model, so a model change only has to push fresh views to the
+ * ranking, never refetch.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CityWeatherLoader {
+
+    public static final String CACHE_NAME = "cityWeather";
+
+    private static final String ICON_URL = "https://openweathermap.org/img/wn/%s@2x.png";
+
+    private final WeatherProvider weatherProvider;
+    private final ComfortIndexCalculator comfortCalculator;
+    private final CacheManager cacheManager;
+    private final CityRegistry cityRegistry;
+    private final MockWeatherDataset mockDataset;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${weather.api.cache-duration:300}")
+    private long cacheDuration;
+
+    @Value("${weather.cache.maximum-size:100}")
+    private long maximumSize;
+
+    @Value("${weather.mock.enabled:false}")
+    private boolean useMockData;
+
+    @Value("${weather.cache.refresh-ahead.enabled:false}")
+    private boolean refreshAheadEnabled;
+
+    @Value("${weather.cache.refresh-ahead.refresh-after:240}")
+    private long refreshAfterSeconds;
+
+    @Value("${weather.cache.refresh-ahead.max-staleness:600}")
+    private long maxStalenessSeconds;
+
+    @Value("${weather.cache.refresh-ahead.threads:2}")
+    private int refreshThreads;
+
+    @Value("${weather.provider.group-size:20}")
+    private int groupSize;
+
+    @Value("${weather.provider.batch.enabled:false}")
+    private boolean missBatchingEnabled;
+
+    @Value("${weather.provider.batch.max-wait-ms:10}")
+    private long missBatchMaxWaitMs;
+
+    private final Map<String, CacheStatusDTO> cacheStatusMap = new ConcurrentHashMap<>();
+    private final Map<String, LocalDateTime> lastFetchTime = new ConcurrentHashMap<>();
+
+    // Forced refreshes and cache loads for the same city share one upstream call,
+    // whether it is a single-city request or a slot in a batched group request
+    private final SingleFlight<String, OpenWeatherMapResponseDTO> upstreamFlights = new SingleFlight<>();
+    private final AtomicLong groupFetchCount = new AtomicLong();
+    private final AtomicLong groupedCityCount = new AtomicLong();
+    private final AtomicLong entryGeneration = new AtomicLong();
+    // Load starts, evictions and replacements share one sequence; a catalog
+    // city maps to the last time its cached value was dropped or replaced
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final Map<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    private volatile long rescoredAtMillis;
+
+    private ExecutorService refreshExecutor;
+    private ScheduledExecutorService batchScheduler;
+    private MicroBatcher<String, OpenWeatherMapResponseDTO> missBatcher;
+    private AsyncLoadingCache<String, CityWeatherEntry> cache;
+
+    @PostConstruct
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void init() {
+        groupSize = Math.min(groupSize, OpenWeatherMapEndpoint.MAX_GROUP_SIZE);
+        fitCatalog();
+        // Expired and size-evicted cities leave the ranking too, so it only
+        // ever lists cities that are cached
+        Caffeine<String, CityWeatherEntry> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .scheduler(Scheduler.systemScheduler())
+                .evictionListener((String cityId, CityWeatherEntry entry, RemovalCause cause) -> {
+                    if (cityId != null) {
+                        eventPublisher.publishEvent(new CityWeatherEvictedEvent(cityId));
+                    }
+                })
+                .recordStats();
+
+        if (refreshAheadEnabled) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("city-refresh-");
+            threadFactory.setDaemon(true);
+            refreshExecutor = Executors.newFixedThreadPool(refreshThreads, threadFactory);
+
+            builder.refreshAfterWrite(refreshAfterSeconds, TimeUnit.SECONDS)
+                    .expireAfterWrite(maxStalenessSeconds, TimeUnit.SECONDS)
+                    .executor(refreshExecutor);
+            log.info("cityWeather refresh-ahead enabled (refresh after {}s, max staleness {}s)",
+                    refreshAfterSeconds, maxStalenessSeconds);
+        } else {
+            builder.expireAfterWrite(cacheDuration, TimeUnit.SECONDS);
+        }
+
+        if (missBatchingEnabled && !useMockData && groupSize > 1) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("city-batch-");
+            threadFactory.setDaemon(true);
+            batchScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            missBatcher = new MicroBatcher<>(groupSize, missBatchMaxWaitMs, this::fetchGroup, batchScheduler);
+            log.info("cityWeather miss batching enabled (up to {} cities, {} ms window)",
+                    groupSize, missBatchMaxWaitMs);
+        }
+
+        cache = builder.buildAsync(new AsyncCacheLoader<>() {
+            @Override
+            public CompletableFuture<CityWeatherEntry> asyncLoad(String cityId, Executor executor) {
+                return load(cityId, "MISS", true);
+            }
+
+            @Override
+            public CompletableFuture<Map<String, CityWeatherEntry>> asyncLoadAll(Set<? extends String> cityIds,
+                                                                              Executor executor) {
+                return loadAll(cityIds, "MISS", true);
+            }
+
+            @Override
+            public CompletableFuture<CityWeatherEntry> asyncReload(String cityId, CityWeatherEntry oldValue,
+                                                                   Executor executor) {
+                markRefreshing(cityId, oldValue);
+                return load(cityId, "REFRESHING", true);
+            }
+        });
+
+        if (cacheManager instanceof CaffeineCacheManager caffeineCacheManager) {
+            caffeineCacheManager.registerCustomCache(CACHE_NAME, (AsyncCache) cache);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (batchScheduler != null) {
+            batchScheduler.shutdownNow();
+        }
+    }
+
+    public WeatherResponseDTO get(String cityId) {
+        return getAsync(cityId).join();
+    }
+
+    public CompletableFuture<WeatherResponseDTO> getAsync(String cityId) {
+        long requestedAt = System.currentTimeMillis();
+        return cache.get(cityId).thenApply(entry ->
+                toView(cityId, entry, resolveCacheStatus(cityId, entry, requestedAt)));
+    }
+
+    /**
+     * Cached weather for several cities, in input order. Cities that are not
+     * cached are loaded together through the upstream group endpoint.
+     */
+    public CompletableFuture<List<WeatherResponseDTO>> getAllAsync(List<String> cityIds) {
+        long requestedAt = System.currentTimeMillis();
+        return cache.getAll(cityIds).thenApply(entries -> {
+            List<WeatherResponseDTO> result = new ArrayList<>(cityIds.size());
+            for (String cityId : cityIds) {
+                CityWeatherEntry entry = entries.get(cityId);
+                if (entry != null) {
+                    result.add(toView(cityId, entry, resolveCacheStatus(cityId, entry, requestedAt)));
+                }
+            }
+            return result;
+        });
+    }
+
+    public CompletableFuture<List<WeatherResponseDTO>> refreshAllAsync(List<String> cityIds) {
+        cityIds.forEach(this::evict);
+        return getAllAsync(cityIds);
+    }
+
+    /**
+     * Grows the cache to hold the whole catalog, e.g. after the catalog was
+     * reloaded with more cities.
+     */
+    public void fitCatalog() {
+        int catalogSize = cityRegistry.size();
+        if (catalogSize > maximumSize) {
+            log.info("Raising cityWeather maximum size from {} to the catalog size {}", maximumSize, catalogSize);
+            maximumSize = catalogSize;
+            if (cache != null) {
+                cache.synchronous().policy().eviction().ifPresent(eviction -> eviction.setMaximum(catalogSize));
+            }
+        }
+    }
+
+    /**
+     * Drops the cached entry and loads it again synchronously.
+     */
+    public WeatherResponseDTO refresh(String cityId) {
+        return refreshAsync(cityId).join();
+    }
+
+    public CompletableFuture<WeatherResponseDTO> refreshAsync(String cityId) {
+        evict(cityId);
+        return getAsync(cityId);
+    }
+
+    /**
+     * Reloads several cities together, through one upstream group request per
+     * {@code group-size} cities, and swaps the new entries in when the fetch
+     * completes. Readers keep the current values until then.
+     */
+    public CompletableFuture<Void> refreshGroup(List<String> cityIds) {
+        for (String cityId : cityIds) {
+            CityWeatherEntry current = cache.synchronous().asMap().get(cityId);
+            if (current != null) {
+                markRefreshing(cityId, current);
+            }
+        }
+        return loadAll(cityIds, "REFRESHING", false).thenAccept(entries -> entries.forEach((cityId, entry) -> {
+            cache.put(cityId, CompletableFuture.completedFuture(entry));
+            // A refresh-ahead reload still in flight is discarded by the cache, so keep it out of the ranking
+            invalidated(cityId);
+            publish(cityId, entry);
+        }));
+    }
+
+    public void evict(String cityId) {
+        cache.synchronous().invalidate(cityId);
+        invalidated(cityId);
+        cacheStatusMap.remove(cityId);
+        lastFetchTime.remove(cityId);
+        eventPublisher.publishEvent(new CityWeatherEvictedEvent(cityId));
+        log.debug("Cache evicted for city: {}", cityId);
+    }
+
+    public void evictAll() {
+        // Keys include cities still loading, whose results the cache discards
+        Set<String> cityIds = Set.copyOf(cache.asMap().keySet());
+        cache.synchronous().invalidateAll();
+        cityIds.forEach(this::invalidated);
+        cacheStatusMap.clear();
+        lastFetchTime.clear();
+        cityIds.forEach(cityId -> eventPublisher.publishEvent(new CityWeatherEvictedEvent(cityId)));
+    }
+
+    @EventListener
+    public void onComfortModelChanged(ComfortModelChangedEvent event) {
+        int rescored = rescoreAll();
+        log.info("Re-scored {} cached cities with comfort model version {}", rescored, event.model().getVersion());
+    }
+
+    /**
+     * Re-scores every cached city with the current comfort model and pushes
+     * the new views to the ranking, without touching upstream or the entries'
+     * expiry.
+     *
+     * @return the number of cities re-scored
+     */
+    public int rescoreAll() {
+        rescoredAtMillis = System.currentTimeMillis();
+        int rescored = 0;
+        for (Map.Entry<String, CityWeatherEntry> cached : cache.synchronous().asMap().entrySet()) {
+            String status = resolveCacheStatus(cached.getKey(), cached.getValue(), Long.MAX_VALUE);
+            eventPublisher.publishEvent(new CityWeatherUpdatedEvent(cached.getKey(),
+                    toView(cached.getKey(), cached.getValue(), status)));
+            rescored++;
+        }
+        return rescored;
+    }
+
+    /**
+     * Validators for the city's current response, or null if it is not
+     * cached. Never loads or counts towards the hit rate; the tag changes with
+     * the entry, the comfort model and the cache status reported in the body.
+     */
+    public CacheValidator validator(String cityId) {
+        CityWeatherEntry entry = cache.synchronous().asMap().get(cityId);
+        if (entry == null) {
+            return null;
+        }
+        // A cached entry is never a MISS for a later read
+        String status = resolveCacheStatus(cityId, entry, Long.MAX_VALUE);
+        String tag = "c" + entry.generation() + "." + comfortCalculator.getModel().getVersion() + "." + status;
+        return CacheValidator.of(tag, Math.max(entry.fetchedAtMillis(), rescoredAtMillis));
+    }
+
+    public CacheStatusDTO getCacheStatus(String cityId) {
+        CacheStatusDTO status = cacheStatusMap.get(cityId);
+        if (status == null) {
+            status = new CacheStatusDTO(cityId, "NOT_CACHED", cacheDuration,
+                    CACHE_NAME + "::" + cityId, true);
+        } else {
+            LocalDateTime lastFetch = lastFetchTime.get(cityId);
+            boolean isExpired = lastFetch != null &&
+                    lastFetch.plusSeconds(cacheDuration).isBefore(LocalDateTime.now());
+            status.setIsExpired(isExpired);
+        }
+        return status;
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Number of upstream fetches that were served by joining an in-flight call.
+     */
+    public long getCoalescedFetchCount() {
+        return upstreamFlights.getCoalescedCount();
+    }
+
+    public long getUpstreamFetchCount() {
+        return upstreamFlights.getExecutionCount();
+    }
+
+    /**
+     * Number of upstream group requests and the cities they covered.
+     */
+    public long getGroupFetchCount() {
+        return groupFetchCount.get();
+    }
+
+    public long getGroupedCityCount() {
+        return groupedCityCount.get();
+    }
+
+    /**
+     * Batch size and wait-time histograms of the single-city miss collector,
+     * or an empty map when miss batching is off.
+     */
+    public Map<String, Object> getMissBatchStatistics() {
+        if (missBatcher == null) {
+            return Map.of();
+        }
+        Map<String, Object> batching = new HashMap<>();
+        batching.put("maxBatchSize", missBatcher.getMaxBatchSize());
+        batching.put("maxWaitMs", missBatcher.getMaxWaitMillis());
+        batching.put("batchSize", missBatcher.getBatchSizes().snapshot());
+        batching.put("waitMicros", missBatcher.getWaitMicros().snapshot());
+        return batching;
+    }
+
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int getTrackedCityCount() {
+        return cacheStatusMap.size();
+    }
+
+    public Set<String> getTrackedCityIds() {
+        return cacheStatusMap.keySet();
+    }
+
+    private String resolveCacheStatus(String cityId, CityWeatherEntry entry, long requestedAt) {
+        if (entry.observation().fallback()) {
+            return "FALLBACK";
+        }
+        if (entry.fetchedAtMillis() >= requestedAt) {
+            return "MISS";
+        }
+        long ageMillis = System.currentTimeMillis() - entry.fetchedAtMillis();
+        if (refreshAheadEnabled && ageMillis >= TimeUnit.SECONDS.toMillis(refreshAfterSeconds)) {
+            return cache.synchronous().policy().refreshes().containsKey(cityId) ? "REFRESHING" : "STALE";
+        }
+        return "HIT";
+    }
+
+    /**
+     * @param publish whether the entry goes to the ranking when the load
+     *                completes; false when the caller stores and publishes it
+     */
+    private CompletableFuture<CityWeatherEntry> load(String cityId, String loadStatus, boolean publish) {
+        updateCacheStatus(cityId, loadStatus);
+        lastFetchTime.put(cityId, LocalDateTime.now());
+        long fetchedAt = System.currentTimeMillis();
+        long startedAt = writeSequence.incrementAndGet();
+
+        return fetchWeatherData(cityId).handle((weatherData, failure) -> {
+            CityWeatherEntry entry = toEntry(cityId, weatherData, failure, fetchedAt);
+            if (publish) {
+                publishIfCurrent(cityId, entry, startedAt);
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * Bulk miss or group refresh: cities are fetched in chunks of {@code group-size} through the
+     * upstream group endpoint, one request per chunk, and split back into
+     * per-city entries. In mock mode, or with grouping disabled, each city is
+     * loaded on its own.
+     */
+    private CompletableFuture<Map<String, CityWeatherEntry>> loadAll(Collection<? extends String> cityIds,
+                                                                     String loadStatus, boolean publish) {
+        List<String> ids = List.copyOf(cityIds);
+        List<CompletableFuture<Map<String, CityWeatherEntry>>> chunks = new ArrayList<>();
+
+        if (useMockData || groupSize <= 1) {
+            for (String cityId : ids) {
+                chunks.add(load(cityId, loadStatus, publish).thenApply(entry -> Map.of(cityId, entry)));
+            }
+        } else {
+            for (int from = 0; from < ids.size(); from += groupSize) {
+                chunks.add(loadGroup(ids.subList(from, Math.min(from + groupSize, ids.size())), loadStatus,
+                        publish));
+            }
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(done -> {
+            Map<String, CityWeatherEntry> entries = new HashMap<>(ids.size() * 2);
+            chunks.forEach(chunk -> entries.putAll(chunk.join()));
+            return entries;
+        });
+    }
+
+    private CompletableFuture<Map<String, CityWeatherEntry>> loadGroup(List<String> cityIds, String loadStatus,
+                                                                       boolean publish) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String cityId : cityIds) {
+            updateCacheStatus(cityId, loadStatus);
+            lastFetchTime.put(cityId, now);
+        }
+        long fetchedAt = System.currentTimeMillis();
+        long startedAt = writeSequence.incrementAndGet();
+
+        return fetchGroup(cityIds).handle((byCity, failure) -> {
+            if (failure != null) {
+                log.warn("Failed to fetch {} cities from the OpenWeatherMap group API, using mock data: {}",
+                        cityIds.size(), rootMessage(failure));
+                byCity = Map.of();
+            }
+
+            Map<String, CityWeatherEntry> entries = new HashMap<>(cityIds.size() * 2);
+            for (String cityId : cityIds) {
+                // Cities the group response left out fall back to mock data, as a failed single call
+                // does; each city resolves on its own so one bad ID cannot fail the whole group
+                OpenWeatherMapResponseDTO weatherData = byCity.get(cityId);
+                Throwable cityFailure = null;
+                if (weatherData == null) {
+                    try {
+                        weatherData = mockDataset.lookup(cityId);
+                    } catch (RuntimeException e) {
+                        cityFailure = e;
+                    }
+                }
+                CityWeatherEntry entry = toEntry(cityId, weatherData, cityFailure, fetchedAt);
+                if (publish) {
+                    publishIfCurrent(cityId, entry, startedAt);
+                }
+                entries.put(cityId, entry);
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * One upstream group request, keyed by city ID. Cities the response left
+     * out are simply absent from the map.
+     */
+    private CompletableFuture<Map<String, OpenWeatherMapResponseDTO>> fetchGroup(List<String> cityIds) {
+        groupFetchCount.incrementAndGet();
+        groupedCityCount.addAndGet(cityIds.size());
+
+        return weatherProvider.fetchCurrentWeatherGroup(cityIds).thenApply(observations -> {
+            Map<String, OpenWeatherMapResponseDTO> byCity = new HashMap<>(cityIds.size() * 2);
+            for (OpenWeatherMapResponseDTO observation : observations) {
+                if (observation.getId() != null) {
+                    byCity.put(String.valueOf(observation.getId()), observation);
+                }
+            }
+            return byCity;
+        });
+    }
+
+    private CityWeatherEntry toEntry(String cityId, OpenWeatherMapResponseDTO weatherData, Throwable failure,
+                                     long fetchedAt) {
+        return new CityWeatherEntry(toObservation(cityId, weatherData, failure), fetchedAt,
+                entryGeneration.incrementAndGet());
+    }
+
+    /**
+     * Publishes a loaded entry unless the city was evicted or replaced after
+     * the load started. Checked and published under the city's slot in
+     * {@code invalidatedAt}, so an eviction either sees the update and
+     * removes it again, or the update sees the eviction and is dropped.
+     */
+    private void publishIfCurrent(String cityId, CityWeatherEntry entry, long startedAt) {
+        if (!cityRegistry.contains(cityId)) {
+            // Never ranked, so nothing to keep in step with the cache
+            publish(cityId, entry);
+            return;
+        }
+        invalidatedAt.compute(cityId, (id, invalidated) -> {
+            if (invalidated == null || invalidated < startedAt) {
+                publish(cityId, entry);
+            } else {
+                log.debug("Not ranking city {}: it was evicted or replaced while loading", cityId);
+            }
+            return invalidated;
+        });
+    }
+
+    /**
+     * Records that the city's cached value was just dropped or replaced.
+     * Called after the cache change, so a load that starts in between is at
+     * worst left out of the ranking until the next read ranks it from the
+     * cache, never ranked after the cache dropped it.
+     */
+    private void invalidated(String cityId) {
+        // Only catalog cities are ranked; other IDs would grow the map without bound
+        if (cityRegistry.contains(cityId)) {
+            long sequence = writeSequence.incrementAndGet();
+            invalidatedAt.compute(cityId, (id, previous) -> sequence);
+        }
+    }
+
+    private void publish(String cityId, CityWeatherEntry entry) {
+        long modelVersion = comfortCalculator.getModel().getVersion();
+        // A completed load is fresh, whether it was a miss or a refresh
+        eventPublisher.publishEvent(new CityWeatherUpdatedEvent(cityId, toView(cityId, entry, "HIT")));
+        if (comfortCalculator.getModel().getVersion() != modelVersion) {
+            // The model changed while this city was being ranked and it may
+            // have missed the re-scoring pass
+            eventPublisher.publishEvent(new CityWeatherUpdatedEvent(cityId, toView(cityId, entry, "HIT")));
+        }
+    }
+
+    /**
+     * Shows the city as REFRESHING in the ranking while its reload is in
+     * flight; the reloaded entry replaces it as HIT.
+     */
+    private void markRefreshing(String cityId, CityWeatherEntry current) {
+        eventPublisher.publishEvent(new CityWeatherUpdatedEvent(cityId, toView(cityId, current, "REFRESHING")));
+    }
+
+    private WeatherObservation toObservation(String cityId, OpenWeatherMapResponseDTO weatherData,
+                                             Throwable failure) {
+        if (failure != null) {
+            log.error("Error fetching weather for city {}: {}", cityId, rootMessage(failure));
+            updateCacheStatus(cityId, "ERROR");
+            return fallbackObservation(cityId);
+        }
+
+        try {
+            if (weatherData == null) {
+                log.warn("No weather data received for city: {}", cityId);
+                return fallbackObservation(cityId);
+            }
+
+            WeatherObservation observation = WeatherObservation.from(weatherData);
+            updateCacheStatus(cityId, "HIT");
+
+            log.debug("Successfully fetched weather for city: {}", cityId);
+            return observation;
+
+        } catch (Exception e) {
+            log.error("Error fetching weather for city {}: {}", cityId, e.getMessage());
+            updateCacheStatus(cityId, "ERROR");
+            return fallbackObservation(cityId);
+        }
+    }
+
+    /**
+     * The API view of a cached observation, scored with the current comfort
+     * model. Fallback entries keep their fixed neutral score.
+     */
+    private WeatherResponseDTO toView(String cityId, CityWeatherEntry entry, String cacheStatus) {
+        WeatherObservation observation = entry.observation();
+        WeatherResponseDTO view = WeatherResponseDTO.builder()
+                .cityId(cityId)
+                .cityName(observation.cityName())
+                .country(observation.country())
+                .temperature(WeatherObservation.boxed(observation.temperature()))
+                .feelsLike(WeatherObservation.boxed(observation.feelsLike()))
+                .humidity(WeatherObservation.boxed(observation.humidity()))
+                .pressure(WeatherObservation.boxed(observation.pressure()))
+                .windSpeed(WeatherObservation.boxed(observation.windSpeed()))
+                .cloudiness(WeatherObservation.boxed(observation.cloudiness()))
+                .visibility(WeatherObservation.boxed(observation.visibility()))
+                .weatherDescription(observation.description())
+                .weatherIcon(observation.iconCode() != null ? ICON_URL.formatted(observation.iconCode()) : null)
+                .cacheStatus(cacheStatus)
+                .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.fetchedAtMillis()), ZoneId.systemDefault())
+                        .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .build();
+
+        if (observation.fallback()) {
+            view.setComfortScore(50.0);
+            view.setComfortLevel("Moderate");
+            view.setCacheStatus("FALLBACK");
+        } else {
+            ComfortIndexResponse comfortIndex = comfortCalculator.calculateComfortIndex(view);
+            view.setComfortScore(comfortIndex.getComfortScore());
+            view.setComfortLevel(comfortIndex.getComfortLevel());
+        }
+        return view;
+    }
+
+    private void updateCacheStatus(String cityId, String status) {
+        CacheStatusDTO cacheStatus = new CacheStatusDTO(
+                cityId, status, cacheDuration,
+                CACHE_NAME + "::" + cityId, false
+        );
+        cacheStatusMap.put(cityId, cacheStatus);
+    }
+
+    private CompletableFuture<OpenWeatherMapResponseDTO> fetchWeatherData(String cityId) {
+        if (useMockData) {
+            // Failures go through the same fallback as upstream ones
+            try {
+                return CompletableFuture.completedFuture(mockDataset.lookup(cityId));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        // Only catalog cities join a batch, so an unknown ID is rejected upstream on its own
+        boolean batched = missBatcher != null && cityRegistry.contains(cityId);
+        return upstreamFlights.executeAsync(cityId, () -> batched
+                        ? missBatcher.submit(cityId)
+                        : weatherProvider.fetchCurrentWeather(cityId))
+                .exceptionally(e -> {
+                    log.warn("Failed to fetch from OpenWeatherMap, using mock data: {}", rootMessage(e));
+                    return mockDataset.lookup(cityId);
+                });
+    }
+
+    private static String rootMessage(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        return cause.getMessage();
+    }
+
+    private WeatherObservation fallbackObservation(String cityId) {
+        return WeatherObservation.fallback(cityRegistry.findByCode(cityId,
+                new CityDTO(cityId, "Unknown", "25.0", "Clear")));
+    }
+}
@@ -0,0 +1,10 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.WeatherResponseDTO;
+
+/**
+ * Published by {@link CityWeatherLoader} whenever a city's weather has been
+ * (re)loaded from upstream.
+ */
+public record CityWeatherUpdatedEvent(String cityId, WeatherResponseDTO weather) {
+}
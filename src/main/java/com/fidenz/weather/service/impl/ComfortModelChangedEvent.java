@@ -0,0 +1,10 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.util.ComfortModel;
+
+/**
+ * Published by {@link ComfortModelRegistry} after a new comfort model became
+ * active.
+ */
+public record ComfortModelChangedEvent(ComfortModel model) {
+}
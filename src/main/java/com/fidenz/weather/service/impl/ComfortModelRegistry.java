@@ -0,0 +1,104 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.ComfortModelDTO;
+import com.fidenz.weather.util.ComfortIndexCalculator;
+import com.fidenz.weather.util.ComfortModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Loads the comfort model definition from {@code weather.comfort.model-location}
+ * and lets it be replaced at runtime. Each definition is validated and compiled
+ * into an immutable {@link ComfortModel} with a new version, swapped into the
+ * {@link ComfortIndexCalculator} in one step, and announced with a
+ * {@link ComfortModelChangedEvent} so cached weather is re-scored without
+ * refetching. An invalid definition is rejected and the active model stays.
+ */
+@Component
+@Slf4j
+public class ComfortModelRegistry {
+
+    private final ObjectMapper objectMapper;
+    private final ComfortIndexCalculator calculator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Resource location;
+
+    private final AtomicLong versions = new AtomicLong();
+    // Keeps versions activating in order. A ReentrantLock rather than
+    // synchronized so virtual threads never pin on it; the re-score runs
+    // after it is released
+    private final ReentrantLock swapLock = new ReentrantLock();
+
+    public ComfortModelRegistry(
+            ObjectMapper objectMapper,
+            ComfortIndexCalculator calculator,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${weather.comfort.model-location:classpath:comfort-model.json}") Resource location) {
+        this.objectMapper = objectMapper;
+        this.calculator = calculator;
+        this.eventPublisher = eventPublisher;
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!location.exists()) {
+            log.info("No comfort model at {}, using the built-in model", location.getDescription());
+            return;
+        }
+        try {
+            reload();
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid comfort model at {} ({}), using the built-in model",
+                    location.getDescription(), e.getMessage());
+        }
+    }
+
+    /**
+     * Re-reads the configured definition and applies it.
+     */
+    public ComfortModel reload() {
+        try (InputStream in = location.getInputStream()) {
+            return apply(objectMapper.readValue(in, ComfortModelDTO.class));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read comfort model from "
+                    + location.getDescription() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles and activates {@code definition}; omitted values keep the
+     * built-in defaults.
+     *
+     * @throws IllegalArgumentException if the definition is invalid
+     */
+    public ComfortModel apply(ComfortModelDTO definition) {
+        ComfortModel model;
+        swapLock.lock();
+        try {
+            model = ComfortModel.compile(definition, versions.incrementAndGet());
+            calculator.setModel(model);
+        } finally {
+            swapLock.unlock();
+        }
+        log.info("Comfort model version {} is active", model.getVersion());
+        // Listeners re-score with the calculator's current model, so events
+        // delivered out of order still leave the latest model applied
+        eventPublisher.publishEvent(new ComfortModelChangedEvent(model));
+        return model;
+    }
+
+    public ComfortModel getModel() {
+        return calculator.getModel();
+    }
+}
@@ -0,0 +1,178 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.CityDTO;
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mock observations used in mock mode and as the fallback when the upstream
+ * call fails. The JSON file is parsed once into an immutable map keyed by city
+ * ID; catalog cities missing from the file get a synthetic observation built
+ * from the catalog, generated once per city and reused. Any other ID gets a
+ * fresh synthetic observation on every call, so client-supplied IDs never
+ * accumulate in memory.
+ * <p>
+ * With {@code weather.mock.reload-on-change} the file's modification time is
+ * checked at most once per {@code reload-check-interval-ms} and the index is
+ * rebuilt when it changes. Returned objects are shared and must not be modified.
+ */
+@Component
+@Slf4j
+public class MockWeatherDataset {
+
+    private final ObjectMapper objectMapper;
+    private final CityRegistry cityRegistry;
+    private final Resource location;
+    private final boolean reloadOnChange;
+    private final long reloadCheckIntervalMs;
+
+    private final Map<String, OpenWeatherMapResponseDTO> generated = new ConcurrentHashMap<>();
+
+    private volatile Map<String, OpenWeatherMapResponseDTO> index = Map.of();
+    private volatile long loadedLastModified;
+    private volatile long nextCheckAt;
+
+    public MockWeatherDataset(
+            ObjectMapper objectMapper,
+            CityRegistry cityRegistry,
+            @Value("${weather.mock.location:classpath:static/mock-weather-data.json}") Resource location,
+            @Value("${weather.mock.reload-on-change:false}") boolean reloadOnChange,
+            @Value("${weather.mock.reload-check-interval-ms:1000}") long reloadCheckIntervalMs) {
+        this.objectMapper = objectMapper;
+        this.cityRegistry = cityRegistry;
+        this.location = location;
+        this.reloadOnChange = reloadOnChange;
+        this.reloadCheckIntervalMs = reloadCheckIntervalMs;
+    }
+
+    @PostConstruct
+    public void load() {
+        long lastModified = lastModified();
+        try (InputStream in = location.getInputStream()) {
+            Map<String, OpenWeatherMapResponseDTO> parsed = objectMapper.readValue(in,
+                    new TypeReference<Map<String, OpenWeatherMapResponseDTO>>() {});
+            index = Map.copyOf(parsed);
+            log.info("Loaded mock weather for {} cities from {}", index.size(), location.getDescription());
+        } catch (IOException e) {
+            log.warn("Mock weather data not available ({}), using generated data only", e.getMessage());
+            index = Map.of();
+        }
+        loadedLastModified = lastModified;
+    }
+
+    /**
+     * The mock observation for a city: the file entry if there is one,
+     * otherwise a synthetic one derived from the city catalog. Only catalog
+     * cities are memoised.
+     */
+    public OpenWeatherMapResponseDTO lookup(String cityId) {
+        if (reloadOnChange) {
+            reloadIfChanged();
+        }
+        OpenWeatherMapResponseDTO data = index.get(cityId);
+        if (data != null) {
+            return data;
+        }
+        return cityRegistry.contains(cityId)
+                ? generated.computeIfAbsent(cityId, this::createDefaultMockData)
+                : createDefaultMockData(cityId);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Re-reads the file and forgets generated entries, e.g. after the city
+     * catalog changed.
+     */
+    public void reload() {
+        generated.clear();
+        load();
+    }
+
+    private void reloadIfChanged() {
+        long now = System.currentTimeMillis();
+        if (now < nextCheckAt) {
+            return;
+        }
+        nextCheckAt = now + reloadCheckIntervalMs;
+        if (lastModified() != loadedLastModified) {
+            log.info("Mock weather data changed, reloading");
+            load();
+        }
+    }
+
+    private long lastModified() {
+        try {
+            return location.lastModified();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private OpenWeatherMapResponseDTO createDefaultMockData(String cityId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        OpenWeatherMapResponseDTO data = new OpenWeatherMapResponseDTO();
+        data.setId(Long.parseLong(cityId));
+
+        // Find city from cities.json
+        CityDTO city = cityRegistry.findByCode(cityId,
+                new CityDTO(cityId, "Unknown City", "25.0", "Clear"));
+
+        data.setName(city.getCityName());
+
+        // Create main data
+        OpenWeatherMapResponseDTO.Main main = new OpenWeatherMapResponseDTO.Main();
+        try {
+            main.setTemp(Double.parseDouble(city.getTemp()));
+        } catch (NumberFormatException e) {
+            main.setTemp(25.0);
+        }
+        main.setFeelsLike(main.getTemp() + 2);
+        main.setHumidity(50.0 + (random.nextDouble() * 40 - 20)); // 30-70%
+        main.setPressure(1013.0);
+        data.setMain(main);
+
+        // Create wind data
+        OpenWeatherMapResponseDTO.Wind wind = new OpenWeatherMapResponseDTO.Wind();
+        wind.setSpeed(2.5 + (random.nextDouble() * 5)); // 2.5-7.5 m/s
+        data.setWind(wind);
+
+        // Create clouds data
+        OpenWeatherMapResponseDTO.Clouds clouds = new OpenWeatherMapResponseDTO.Clouds();
+        clouds.setAll(city.getStatus().equals("Clear") ? 0 :
+                city.getStatus().equals("Clouds") ? 40 : 60);
+        data.setClouds(clouds);
+
+        // Create weather data
+        OpenWeatherMapResponseDTO.Weather weather = new OpenWeatherMapResponseDTO.Weather();
+        weather.setMain(city.getStatus());
+        weather.setDescription(city.getStatus().toLowerCase());
+        weather.setIcon(city.getStatus().equals("Clear") ? "01d" : "03d");
+        data.setWeather(Arrays.asList(weather));
+
+        // Create sys data
+        OpenWeatherMapResponseDTO.Sys sys = new OpenWeatherMapResponseDTO.Sys();
+        sys.setCountry("XX");
+        data.setSys(sys);
+
+        data.setVisibility(10000);
+        data.setCod(200);
+
+        return data;
+    }
+}
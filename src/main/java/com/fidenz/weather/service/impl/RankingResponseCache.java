@@ -0,0 +1,83 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.service.EncodedRanking;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the unfiltered all-cities response as ready-encoded bytes. They are
+ * rebuilt only when the ranking snapshot version changes, so between weather
+ * updates a request costs a version check and a buffer copy instead of a
+ * Jackson pass over every city. Uses the application {@link ObjectMapper}, so
+ * the JSON is the same as the message converters would write.
+ */
+@Component
+@Slf4j
+public class RankingResponseCache {
+
+    private final ObjectMapper objectMapper;
+    // One rebuild per version. A ReentrantLock rather than synchronized so
+    // virtual threads never pin on it
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private volatile EncodedRanking current = new EncodedRanking(-1, null, 0, new byte[0], new byte[0]);
+
+    public RankingResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public EncodedRanking encode(RankingSnapshot snapshot) {
+        EncodedRanking encoded = current;
+        if (encoded.version() == snapshot.version()) {
+            return encoded;
+        }
+        buildLock.lock();
+        try {
+            encoded = current;
+            if (encoded.version() != snapshot.version()) {
+                encoded = build(snapshot);
+                // Concurrent requests may hold different snapshots; never move backwards
+                if (encoded.version() > current.version()) {
+                    current = encoded;
+                }
+            }
+            return encoded;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private EncodedRanking build(RankingSnapshot snapshot) {
+        long start = System.nanoTime();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(snapshot.cities());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the city ranking", e);
+        }
+        byte[] gzip = gzip(json);
+        log.debug("Encoded ranking version {} ({} cities, {} bytes, {} gzipped) in {} µs",
+                snapshot.version(), snapshot.size(), json.length, gzip.length,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return new EncodedRanking(snapshot.version(), snapshot.validator(), snapshot.size(), json, gzip);
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
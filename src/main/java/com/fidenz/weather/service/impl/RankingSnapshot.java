@@ -0,0 +1,86 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.service.CacheValidator;
+import com.fidenz.weather.service.RankingPage;
+import com.fidenz.weather.service.RankingQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the comfort ranking at a given index version. The DTOs in
+ * {@code cities} are copies with {@code rank} already assigned and must not be
+ * modified.
+ */
+public record RankingSnapshot(long version, long lastModifiedMillis, List<WeatherResponseDTO> cities,
+                              Map<String, Integer> ranks) {
+
+    static final RankingSnapshot EMPTY = new RankingSnapshot(0, 0, List.of(), Map.of());
+
+    static CacheValidator validator(long version, long lastModifiedMillis) {
+        return CacheValidator.of("r" + version, lastModifiedMillis);
+    }
+
+    /**
+     * Validators for every response built from this snapshot; the version
+     * changes whenever any ranked city does.
+     */
+    public CacheValidator validator() {
+        return validator(version, lastModifiedMillis);
+    }
+
+    public Integer rankOf(String cityId) {
+        return ranks.get(cityId);
+    }
+
+    public int size() {
+        return cities.size();
+    }
+
+    /**
+     * Applies the query to the ranking. The list is ordered by score, so the
+     * {@code minScore} cut-off is a binary search; attribute filters scan only
+     * the cities above it, and an unfiltered page is a sub-list view.
+     */
+    public RankingPage query(RankingQuery query) {
+        int end = query.minScore() != null ? countAtLeast(query.minScore()) : cities.size();
+
+        if (!query.hasAttributeFilters()) {
+            return new RankingPage(page(cities.subList(0, end), query), end, validator());
+        }
+
+        List<WeatherResponseDTO> matches = new ArrayList<>();
+        for (int i = 0; i < end; i++) {
+            WeatherResponseDTO weather = cities.get(i);
+            if (query.matches(weather)) {
+                matches.add(weather);
+            }
+        }
+        return new RankingPage(page(Collections.unmodifiableList(matches), query), matches.size(),
+                validator());
+    }
+
+    private int countAtLeast(double minScore) {
+        int low = 0;
+        int high = cities.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Double score = cities.get(mid).getComfortScore();
+            if (score != null && score >= minScore) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static List<WeatherResponseDTO> page(List<WeatherResponseDTO> matches, RankingQuery query) {
+        int from = Math.min(query.offset(), matches.size());
+        int to = query.limit() != null ? Math.min(matches.size(), from + query.limit()) : matches.size();
+        return matches.subList(from, to);
+    }
+}
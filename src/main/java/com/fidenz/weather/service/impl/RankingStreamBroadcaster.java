@@ -0,0 +1,378 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.RankingDeltaDTO;
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.service.FrameSink;
+import com.fidenz.weather.service.RankingSubscription;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events feed of comfort ranking changes. City updates within
+ * {@code weather.stream.coalesce-ms} are diffed against the last published
+ * snapshot on a single thread and turned into one {@link RankingDeltaDTO}
+ * event, serialized and framed once; subscribers only copy the shared bytes
+ * into their socket.
+ * <p>
+ * Each subscriber has a bounded queue of {@code weather.stream.client-buffer}
+ * events drained by a writer task. A subscriber whose queue is full when an
+ * event arrives is disconnected rather than slowing the others down; its
+ * EventSource reconnects and starts again from a full snapshot.
+ * <p>
+ * Writers run on virtual threads when they are enabled. Otherwise
+ * {@code weather.stream.writer-threads} pooled platform threads are kept, and
+ * a writer stuck on a stalled socket gets a thread of its own instead of
+ * holding one the healthy subscribers need. At most
+ * {@code weather.stream.max-subscribers} streams are open at once, which also
+ * bounds the writer threads; further subscriptions are answered with 503.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RankingStreamBroadcaster {
+
+    static final String SNAPSHOT_EVENT = "ranking";
+    static final String DELTA_EVENT = "ranking-delta";
+
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final String WRITER_PREFIX = "ranking-stream-";
+
+    private final CityRankingIndex rankingIndex;
+    private final RankingResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${weather.stream.coalesce-ms:250}")
+    private long coalesceMillis;
+
+    @Value("${weather.stream.client-buffer:64}")
+    private int clientBuffer;
+
+    @Value("${weather.stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${weather.stream.writer-threads:8}")
+    private int writerThreads;
+
+    @Value("${weather.stream.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private final AtomicLong deltaCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    // Open streams, including ones still waiting for their snapshot
+    private final AtomicInteger openCount = new AtomicInteger();
+
+    // Only read and written on the scheduler thread
+    private RankingSnapshot published = RankingSnapshot.EMPTY;
+
+    private ScheduledExecutorService scheduler;
+    private Executor writers;
+
+    @PostConstruct
+    public void init() {
+        CustomizableThreadFactory schedulerFactory = new CustomizableThreadFactory("ranking-delta-");
+        schedulerFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(schedulerFactory);
+
+        // A write blocks until the container's write timeout when a client's
+        // socket stalls, and dropping the client does not unblock it. Writers
+        // are therefore never queued behind each other: the pool grows past
+        // writer-threads when it has to, up to one thread per open stream
+        if (virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            writers = new VirtualThreadTaskExecutor(WRITER_PREFIX);
+        } else {
+            CustomizableThreadFactory writerFactory = new CustomizableThreadFactory(WRITER_PREFIX);
+            writerFactory.setDaemon(true);
+            int maxWriters = Math.max(writerThreads, maxSubscribers);
+            writers = new ThreadPoolExecutor(writerThreads, maxWriters, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), writerFactory);
+        }
+
+        if (heartbeatSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(() -> broadcast(HEARTBEAT),
+                    heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscriber::close);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (writers instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+    }
+
+    @EventListener
+    public void onCityWeatherUpdated(CityWeatherUpdatedEvent event) {
+        schedulePublish();
+    }
+
+    @EventListener
+    public void onCityWeatherEvicted(CityWeatherEvictedEvent event) {
+        schedulePublish();
+    }
+
+    /**
+     * Opens a stream that starts with the full ranking (event
+     * {@value #SNAPSHOT_EVENT}) and continues with deltas (event
+     * {@value #DELTA_EVENT}). The snapshot is skipped when
+     * {@code lastEventId} is the version the client already has.
+     * {@code onClose} runs once when the subscriber is dropped, e.g. because
+     * it fell behind or its sink failed.
+     *
+     * @throws ResponseStatusException (503) when {@code max-subscribers} streams are already open
+     */
+    public RankingSubscription subscribe(FrameSink sink, Runnable onClose, String lastEventId) {
+        if (openCount.incrementAndGet() > maxSubscribers) {
+            openCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many ranking stream subscribers, retry later");
+        }
+        Subscriber subscriber = new Subscriber(sink, onClose, clientBuffer);
+        // Joined on the publishing thread, so the snapshot and the first
+        // delta the subscriber sees are consecutive
+        scheduler.execute(() -> {
+            // The client may already be gone, e.g. it disconnected or timed out
+            if (subscriber.isClosed()) {
+                return;
+            }
+            RankingSnapshot baseline = published;
+            if (!String.valueOf(baseline.version()).equals(lastEventId)) {
+                byte[] json = responseCache.encode(baseline).json();
+                subscriber.offer(frame(SNAPSHOT_EVENT, baseline.version(), json));
+            }
+            subscribers.add(subscriber);
+            // close() may have run concurrently, before the subscriber was added
+            if (subscriber.isClosed()) {
+                subscribers.remove(subscriber);
+            }
+        });
+        return subscriber;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDeltaCount() {
+        return deltaCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private void schedulePublish() {
+        if (publishScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::publish, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publish() {
+        publishScheduled.set(false);
+        try {
+            RankingSnapshot current = rankingIndex.snapshot();
+            RankingSnapshot previous = published;
+            if (current.version() != previous.version()) {
+                published = current;
+                if (!subscribers.isEmpty()) {
+                    RankingDeltaDTO delta = diff(previous, current);
+                    if (!delta.getChanged().isEmpty() || !delta.getRemoved().isEmpty()) {
+                        broadcast(frame(DELTA_EVENT, current.version(), objectMapper.writeValueAsBytes(delta)));
+                        deltaCount.incrementAndGet();
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize ranking delta: {}", e.getMessage());
+        }
+        // An update that landed while the delta was built is picked up next
+        if (rankingIndex.version() != published.version()) {
+            schedulePublish();
+        }
+    }
+
+    private void broadcast(byte[] frame) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(frame)) {
+                droppedCount.incrementAndGet();
+                log.debug("Dropping ranking stream subscriber with {} undelivered events", clientBuffer);
+                subscriber.close();
+            }
+        }
+    }
+
+    /**
+     * Cities whose weather, score or rank changed between the two snapshots,
+     * and the ones that left the ranking. Values are absolute, so applying a
+     * delta twice is harmless.
+     */
+    static RankingDeltaDTO diff(RankingSnapshot previous, RankingSnapshot current) {
+        List<RankingDeltaDTO.CityChange> changed = new ArrayList<>();
+        for (WeatherResponseDTO city : current.cities()) {
+            Integer previousRank = previous.rankOf(city.getCityId());
+            if (previousRank == null || refreshed(previous.cities().get(previousRank - 1), city)) {
+                changed.add(RankingDeltaDTO.CityChange.builder()
+                        .cityId(city.getCityId())
+                        .rank(city.getRank())
+                        .cityName(city.getCityName())
+                        .country(city.getCountry())
+                        .temperature(city.getTemperature())
+                        .humidity(city.getHumidity())
+                        .windSpeed(city.getWindSpeed())
+                        .comfortScore(city.getComfortScore())
+                        .comfortLevel(city.getComfortLevel())
+                        .cacheStatus(city.getCacheStatus())
+                        .timestamp(city.getTimestamp())
+                        .build());
+            } else if (!previousRank.equals(city.getRank())) {
+                changed.add(RankingDeltaDTO.CityChange.builder()
+                        .cityId(city.getCityId())
+                        .rank(city.getRank())
+                        .build());
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (WeatherResponseDTO city : previous.cities()) {
+            if (current.rankOf(city.getCityId()) == null) {
+                removed.add(city.getCityId());
+            }
+        }
+        return new RankingDeltaDTO(current.version(), current.size(), changed, removed);
+    }
+
+    private static boolean refreshed(WeatherResponseDTO before, WeatherResponseDTO after) {
+        return !Objects.equals(before.getTimestamp(), after.getTimestamp())
+                || !Objects.equals(before.getComfortScore(), after.getComfortScore())
+                || !Objects.equals(before.getCacheStatus(), after.getCacheStatus());
+    }
+
+    // Compact JSON never contains a raw line break, so it fits one data line
+    static byte[] frame(String event, long id, byte[] json) {
+        byte[] header = ("id: " + id + "\nevent: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(header.length + json.length + EVENT_END.length);
+        out.writeBytes(header);
+        out.writeBytes(json);
+        out.writeBytes(EVENT_END);
+        return out.toByteArray();
+    }
+
+    /**
+     * One client: a bounded queue of shared frames and at most one writer
+     * task draining it at a time.
+     */
+    final class Subscriber implements RankingSubscription {
+        private final FrameSink sink;
+        private final Runnable onClose;
+        private final ArrayBlockingQueue<byte[]> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(FrameSink sink, Runnable onClose, int capacity) {
+            this.sink = sink;
+            this.onClose = onClose;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        boolean offer(byte[] frame) {
+            if (!queue.offer(frame)) {
+                return false;
+            }
+            scheduleDrain();
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                openCount.decrementAndGet();
+                queue.clear();
+                onClose.run();
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed.get();
+        }
+
+        private void scheduleDrain() {
+            if (!closed.get() && draining.compareAndSet(false, true)) {
+                try {
+                    writers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Every writer thread is stuck on a stalled client
+                    draining.set(false);
+                    log.debug("No ranking stream writer available, dropping subscriber");
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                byte[] frame;
+                while (!closed.get() && (frame = queue.poll()) != null) {
+                    sink.write(frame);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Ranking stream subscriber disconnected: {}", e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // A frame offered after the last poll but before the flag was cleared
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }}
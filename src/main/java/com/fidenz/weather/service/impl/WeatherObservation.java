@@ -0,0 +1,84 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.CityDTO;
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+
+/**
+ * Raw observation kept in the {@code cityWeather} cache: only the fields the
+ * API serves, as primitives (NaN or -1 when the provider left them out), with
+ * the repetitive strings (country, description, icon code) interned. Scores,
+ * levels, icon URLs and timestamps are derived from it on read, so a comfort
+ * model change or a new view never needs an upstream call.
+ */
+record WeatherObservation(
+        String cityName,
+        String country,
+        double temperature,
+        double feelsLike,
+        double humidity,
+        double pressure,
+        double windSpeed,
+        int cloudiness,
+        int visibility,
+        String description,
+        String iconCode,
+        boolean fallback) {
+
+    static final int MISSING = -1;
+
+    static WeatherObservation from(OpenWeatherMapResponseDTO response) {
+        OpenWeatherMapResponseDTO.Main main = response.getMain();
+        OpenWeatherMapResponseDTO.Weather weather = response.getWeather() != null && !response.getWeather().isEmpty()
+                ? response.getWeather().get(0) : null;
+
+        return new WeatherObservation(
+                response.getName(),
+                intern(response.getSys() != null ? response.getSys().getCountry() : "N/A"),
+                main != null ? orNaN(main.getTemp()) : Double.NaN,
+                main != null ? orNaN(main.getFeelsLike()) : Double.NaN,
+                main != null ? orNaN(main.getHumidity()) : Double.NaN,
+                main != null ? orNaN(main.getPressure()) : Double.NaN,
+                response.getWind() != null ? orNaN(response.getWind().getSpeed()) : Double.NaN,
+                response.getClouds() != null ? orMissing(response.getClouds().getAll()) : MISSING,
+                orMissing(response.getVisibility()),
+                weather != null ? intern(weather.getDescription()) : null,
+                weather != null ? intern(weather.getIcon()) : null,
+                false);
+    }
+
+    /**
+     * Placeholder for a city whose weather could not be fetched: catalog
+     * temperature and neutral defaults, always scored 50 / Moderate.
+     */
+    static WeatherObservation fallback(CityDTO city) {
+        double temperature;
+        try {
+            temperature = Double.parseDouble(city.getTemp());
+        } catch (NumberFormatException e) {
+            temperature = 25.0;
+        }
+        return new WeatherObservation(city.getCityName(), "N/A", temperature, temperature + 2,
+                50.0, 1013.0, 3.0, "Clear".equals(city.getStatus()) ? 0 : 40, 10000,
+                intern(city.getStatus()), "03d", true);
+    }
+
+    static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    static Integer boxed(int value) {
+        return value == MISSING ? null : value;
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static int orMissing(Integer value) {
+        return value != null ? value : MISSING;
+    }
+
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+}
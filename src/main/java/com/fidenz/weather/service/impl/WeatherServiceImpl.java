@@ -1,43 +1,46 @@
 package com.fidenz.weather.service.impl;
 
 import com.fidenz.weather.dto.*;
+import com.fidenz.weather.exception.ResourceNotFoundException;
+import com.fidenz.weather.service.CacheValidator;
+import com.fidenz.weather.service.EncodedRanking;
+import com.fidenz.weather.service.FrameSink;
+import com.fidenz.weather.service.RankingPage;
+import com.fidenz.weather.service.RankingQuery;
+import com.fidenz.weather.service.RankingSubscription;
 import com.fidenz.weather.service.WeatherService;
 import com.fidenz.weather.util.ComfortIndexCalculator;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.core.io.ClassPathResource;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WeatherServiceImpl implements WeatherService {
 
-    private final RestTemplate restTemplate;
     private final ComfortIndexCalculator comfortCalculator;
-    private final ObjectMapper objectMapper;
     private final CacheManager cacheManager;
-
-    @Value("${weather.api.key}")
-    private String apiKey;
-
-    @Value("${weather.api.base-url}")
-    private String baseUrl;
+    private final CityFanOutExecutor fanOutExecutor;
+    private final CityWeatherLoader cityWeatherLoader;
+    private final CityRegistry cityRegistry;
+    private final CityRankingIndex rankingIndex;
+    private final RankingResponseCache rankingResponseCache;
+    private final RankingStreamBroadcaster rankingStream;
+    private final ComfortModelRegistry comfortModelRegistry;
+    private final PoolingHttpClientConnectionManager weatherConnectionManager;
 
     @Value("${weather.api.cache-duration:300}")
     private long cacheDuration;
@@ -45,77 +48,92 @@ public class WeatherServiceImpl implements WeatherService {
     @Value("${weather.mock.enabled:false}")
     private boolean useMockData;
 
-    private final Map<String, CacheStatusDTO> cacheStatusMap = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> lastFetchTime = new ConcurrentHashMap<>();
-    private List<CityDTO> cachedCities = null;
+    @Value("${weather.batch.max-ids:100}")
+    private int maxBatchIds;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsRequested;
 
     @Override
-    @Cacheable(value = "weatherData", key = "'all_cities_' + #forceRefresh")
     public List<WeatherResponseDTO> getAllCitiesWeather(boolean forceRefresh) {
-        log.info("Fetching weather data for all cities (forceRefresh: {})", forceRefresh);
+        log.debug("Fetching weather data for all cities (forceRefresh: {})", forceRefresh);
+        return ensureRanked(forceRefresh).cities();
+    }
 
-        List<CityDTO> cities = loadCities();
-        List<WeatherResponseDTO> weatherList = new ArrayList<>();
+    @Override
+    public RankingPage getRankedCities(RankingQuery query, boolean forceRefresh) {
+        return ensureRanked(forceRefresh).query(query);
+    }
 
-        for (CityDTO city : cities) {
-            try {
-                WeatherResponseDTO weather = getCityWeather(city.getCityCode(), forceRefresh);
-                if (weather != null) {
-                    weatherList.add(weather);
-                }
-            } catch (Exception e) {
-                log.error("Error fetching weather for city {}: {}", city.getCityCode(), e.getMessage());
-            }
-        }
+    @Override
+    public EncodedRanking getEncodedRanking(boolean forceRefresh) {
+        return rankingResponseCache.encode(ensureRanked(forceRefresh));
+    }
 
-        // Sort by comfort score descending (most comfortable first)
-        weatherList.sort((w1, w2) -> Double.compare(w2.getComfortScore(), w1.getComfortScore()));
+    @Override
+    public CacheValidator getRankingValidator() {
+        // A ranking still missing cities would be completed by the next read
+        return rankingIndex.isComplete() ? rankingIndex.validator() : null;
+    }
 
-        // Assign ranks
-        for (int i = 0; i < weatherList.size(); i++) {
-            weatherList.get(i).setRank(i + 1);
-        }
+    @Override
+    public RankingSubscription streamRankingChanges(FrameSink sink, Runnable onClose, String lastEventId) {
+        return rankingStream.subscribe(sink, onClose, lastEventId);
+    }
 
-        log.info("Successfully fetched weather for {} cities", weatherList.size());
-        return weatherList;
+    @Override
+    public List<WeatherResponseDTO> getTopCities(int limit) {
+        ensureRanked(false);
+        return rankingIndex.topN(limit);
     }
 
     @Override
-    @Cacheable(value = "cityWeather", key = "#cityId", unless = "#result == null")
-    public WeatherResponseDTO getCityWeather(String cityId, boolean forceRefresh) {
-        if (forceRefresh) {
-            evictCityCache(cityId);
+    public Map<String, Object> getCityRank(String cityId) {
+        if (!cityRegistry.contains(cityId)) {
+            throw new ResourceNotFoundException("City not found: " + cityId);
         }
 
-        updateCacheStatus(cityId, "MISS");
-        lastFetchTime.put(cityId, LocalDateTime.now());
-
-        try {
-            OpenWeatherMapResponseDTO weatherData = fetchWeatherData(cityId);
-
-            if (weatherData == null) {
-                log.warn("No weather data received for city: {}", cityId);
-                return createFallbackResponse(cityId);
-            }
+        RankingSnapshot snapshot = ensureRanked(false);
+        Map<String, Object> rank = new HashMap<>();
+        rank.put("cityId", cityId);
+        rank.put("rank", snapshot.rankOf(cityId));
+        rank.put("totalRanked", snapshot.size());
+        return rank;
+    }
 
-            WeatherResponseDTO response = convertToResponseDTO(weatherData);
-            ComfortIndexResponse comfortIndex = comfortCalculator.calculateComfortIndex(response);
+    @Override
+    public WeatherResponseDTO getCityWeather(String cityId, boolean forceRefresh) {
+        return forceRefresh ? cityWeatherLoader.refresh(cityId) : cityWeatherLoader.get(cityId);
+    }
 
-            response.setComfortScore(comfortIndex.getComfortScore());
-            response.setComfortLevel(comfortIndex.getComfortLevel());
-            response.setCacheStatus(cacheStatusMap.get(cityId).getCacheStatus());
-            response.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    /**
+     * Several catalog cities in one pass, in request order without duplicates.
+     * Misses go through a single bulk cache load, so they share upstream group
+     * requests instead of being fetched one by one.
+     */
+    @Override
+    public List<WeatherResponseDTO> getCitiesWeather(List<String> cityIds, boolean forceRefresh) {
+        if (cityIds == null || cityIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one city ID is required");
+        }
+        if (cityIds.size() > maxBatchIds) {
+            throw new IllegalArgumentException("At most " + maxBatchIds + " city IDs are allowed, got " + cityIds.size());
+        }
 
-            updateCacheStatus(cityId, "HIT");
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(cityIds));
+        List<String> unknown = ids.stream().filter(cityId -> !cityRegistry.contains(cityId)).toList();
+        if (!unknown.isEmpty()) {
+            throw new ResourceNotFoundException("Cities not found: " + String.join(", ", unknown));
+        }
 
-            log.debug("Successfully fetched weather for city: {}", cityId);
-            return response;
+        return forceRefresh
+                ? cityWeatherLoader.refreshAllAsync(ids).join()
+                : cityWeatherLoader.getAllAsync(ids).join();
+    }
 
-        } catch (Exception e) {
-            log.error("Error fetching weather for city {}: {}", cityId, e.getMessage());
-            updateCacheStatus(cityId, "ERROR");
-            return createFallbackResponse(cityId);
-        }
+    @Override
+    public CacheValidator getCityValidator(String cityId) {
+        return cityWeatherLoader.validator(cityId);
     }
 
     @Override
@@ -128,86 +146,81 @@ public class WeatherServiceImpl implements WeatherService {
         return comfortCalculator.calculateComfortIndex(weather);
     }
 
+    @Override
+    public ComfortModelDTO getComfortModel() {
+        return comfortModelRegistry.getModel().toDefinition();
+    }
+
+    @Override
+    public ComfortModelDTO updateComfortModel(ComfortModelDTO definition) {
+        return comfortModelRegistry.apply(definition).toDefinition();
+    }
+
+    @Override
+    public ComfortModelDTO reloadComfortModel() {
+        return comfortModelRegistry.reload().toDefinition();
+    }
+
     @Override
     public CacheStatusDTO getCacheStatus(String cityId) {
-        CacheStatusDTO status = cacheStatusMap.get(cityId);
-        if (status == null) {
-            status = new CacheStatusDTO(cityId, "NOT_CACHED", cacheDuration,
-                    "cityWeather::" + cityId, true);
-        } else {
-            LocalDateTime lastFetch = lastFetchTime.get(cityId);
-            boolean isExpired = lastFetch != null &&
-                    lastFetch.plusSeconds(cacheDuration).isBefore(LocalDateTime.now());
-            status.setIsExpired(isExpired);
-        }
-        return status;
+        return cityWeatherLoader.getCacheStatus(cityId);
     }
 
     @Override
     public Map<String, Object> getCacheStatistics() {
         Map<String, Object> stats = new HashMap<>();
 
-        Cache cache = cacheManager.getCache("cityWeather");
-        if (cache instanceof CaffeineCache caffeineCache) {
-            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache =
-                    caffeineCache.getNativeCache();
-            CacheStats cacheStats = nativeCache.stats();
-
-            stats.put("hitCount", cacheStats.hitCount());
-            stats.put("missCount", cacheStats.missCount());
-            stats.put("loadSuccessCount", cacheStats.loadSuccessCount());
-            stats.put("loadFailureCount", cacheStats.loadFailureCount());
-            stats.put("totalLoadTime", cacheStats.totalLoadTime());
-            stats.put("evictionCount", cacheStats.evictionCount());
-            stats.put("evictionWeight", cacheStats.evictionWeight());
-            stats.put("hitRate", cacheStats.hitRate());
-            stats.put("averageLoadPenalty", cacheStats.averageLoadPenalty());
-        }
-
-        stats.put("cacheStatusMapSize", cacheStatusMap.size());
+        CacheStats cacheStats = cityWeatherLoader.stats();
+        stats.put("hitCount", cacheStats.hitCount());
+        stats.put("missCount", cacheStats.missCount());
+        stats.put("loadSuccessCount", cacheStats.loadSuccessCount());
+        stats.put("loadFailureCount", cacheStats.loadFailureCount());
+        stats.put("totalLoadTime", cacheStats.totalLoadTime());
+        stats.put("evictionCount", cacheStats.evictionCount());
+        stats.put("evictionWeight", cacheStats.evictionWeight());
+        stats.put("hitRate", cacheStats.hitRate());
+        stats.put("averageLoadPenalty", cacheStats.averageLoadPenalty());
+        stats.put("upstreamFetchCount", cityWeatherLoader.getUpstreamFetchCount());
+        stats.put("coalescedFetchCount", cityWeatherLoader.getCoalescedFetchCount());
+        stats.put("groupFetchCount", cityWeatherLoader.getGroupFetchCount());
+        stats.put("groupedCityCount", cityWeatherLoader.getGroupedCityCount());
+        stats.put("missBatching", cityWeatherLoader.getMissBatchStatistics());
+
+        stats.put("cacheStatusMapSize", cityWeatherLoader.getTrackedCityCount());
         stats.put("cacheDurationSeconds", cacheDuration);
-        stats.put("cacheKeys", cacheStatusMap.keySet());
+        stats.put("cacheKeys", cityWeatherLoader.getTrackedCityIds());
 
         return stats;
     }
 
     @Override
-    @CacheEvict(value = "cityWeather", key = "#cityId")
     public void clearCacheForCity(String cityId) {
         log.info("Clearing cache for city: {}", cityId);
-        cacheStatusMap.remove(cityId);
-        lastFetchTime.remove(cityId);
+        cityWeatherLoader.evict(cityId);
     }
 
     @Override
     public void clearAllCache() {
         log.info("Clearing all caches");
+        cityWeatherLoader.evictAll();
         cacheManager.getCacheNames().forEach(cacheName -> {
             Cache cache = cacheManager.getCache(cacheName);
             if (cache != null) {
                 cache.clear();
             }
         });
-        cacheStatusMap.clear();
-        lastFetchTime.clear();
-        cachedCities = null;
+        cityRegistry.reload();
+        cityWeatherLoader.fitCatalog();
     }
 
     @Override
     public List<Map<String, Object>> getSupportedCities() {
-        List<CityDTO> cities = loadCities();
-        List<Map<String, Object>> result = new ArrayList<>();
-
-        for (CityDTO city : cities) {
-            Map<String, Object> cityInfo = new HashMap<>();
-            cityInfo.put("cityCode", city.getCityCode());
-            cityInfo.put("cityName", city.getCityName());
-            cityInfo.put("status", city.getStatus());
-            cityInfo.put("temp", city.getTemp());
-            result.add(cityInfo);
-        }
+        return cityRegistry.getSupportedCities();
+    }
 
-        return result;
+    @Override
+    public byte[] getSupportedCitiesJson() {
+        return cityRegistry.getSupportedCitiesJson();
     }
 
     @Override
@@ -218,214 +231,93 @@ public class WeatherServiceImpl implements WeatherService {
         info.put("usingMockData", useMockData);
         info.put("cacheEnabled", true);
         info.put("cacheDurationSeconds", cacheDuration);
-        info.put("totalSupportedCities", loadCities().size());
+        info.put("totalSupportedCities", cityRegistry.size());
+        info.put("rankedCities", rankingIndex.size());
+        info.put("comfortModelVersion", comfortCalculator.getModel().getVersion());
+        info.put("comfortLookupTable", comfortCalculator.isLookupTable());
+        info.put("fanOutMaxConcurrency", fanOutExecutor.getMaxConcurrency());
+        info.put("lastFanOutTimingsMs", fanOutExecutor.getLastRunTimings());
+        info.put("rankingStream", getRankingStreamStatistics());
+        info.put("httpPool", getHttpPoolStatistics());
+        info.put("threads", getThreadStatistics());
         info.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         return info;
     }
 
-    // Private helper methods
-    private void updateCacheStatus(String cityId, String status) {
-        CacheStatusDTO cacheStatus = new CacheStatusDTO(
-                cityId, status, cacheDuration,
-                "cityWeather::" + cityId, false
-        );
-        cacheStatusMap.put(cityId, cacheStatus);
-    }
-
-    @CacheEvict(value = "cityWeather", key = "#cityId")
-    private void evictCityCache(String cityId) {
-        updateCacheStatus(cityId, "EVICTED");
-        lastFetchTime.remove(cityId);
-        log.debug("Cache evicted for city: {}", cityId);
-    }
-
-    private OpenWeatherMapResponseDTO fetchWeatherData(String cityId) {
-        if (useMockData) {
-            return getMockWeatherData(cityId);
-        }
-
-        try {
-            String url = String.format("%s/weather?id=%s&appid=%s&units=metric",
-                    baseUrl, cityId, apiKey);
-
-            log.debug("Calling OpenWeatherMap API: {}", url.replace(apiKey, "***"));
-            return restTemplate.getForObject(url, OpenWeatherMapResponseDTO.class);
-
-        } catch (Exception e) {
-            log.warn("Failed to fetch from OpenWeatherMap, using mock data: {}", e.getMessage());
-            return getMockWeatherData(cityId);
-        }
+    private Map<String, Object> getRankingStreamStatistics() {
+        Map<String, Object> stream = new HashMap<>();
+        stream.put("subscribers", rankingStream.getSubscriberCount());
+        stream.put("deltasPublished", rankingStream.getDeltaCount());
+        stream.put("slowSubscribersDropped", rankingStream.getDroppedCount());
+        stream.put("subscribersRejected", rankingStream.getRejectedCount());
+        return stream;
     }
 
-    private List<CityDTO> loadCities() {
-        if (cachedCities != null) {
-            return cachedCities;
-        }
-
-        try {
-            ClassPathResource resource = new ClassPathResource("cities.json");
-            cachedCities = objectMapper.readValue(resource.getInputStream(),
-                    new TypeReference<List<CityDTO>>() {});
-            log.info("Loaded {} cities from cities.json", cachedCities.size());
-            return cachedCities;
-        } catch (Exception e) {
-            log.error("Error loading cities.json: {}", e.getMessage());
-            return getDefaultCities();
-        }
+    private Map<String, Object> getHttpPoolStatistics() {
+        PoolStats poolStats = weatherConnectionManager.getTotalStats();
+        Map<String, Object> pool = new HashMap<>();
+        pool.put("leased", poolStats.getLeased());
+        pool.put("available", poolStats.getAvailable());
+        pool.put("pending", poolStats.getPending());
+        pool.put("max", poolStats.getMax());
+        pool.put("maxPerRoute", weatherConnectionManager.getDefaultMaxPerRoute());
+        return pool;
     }
 
-    private List<CityDTO> getDefaultCities() {
-        return Arrays.asList(
-                new CityDTO("1248991", "Colombo", "33.0", "Clouds"),
-                new CityDTO("1850147", "Tokyo", "8.6", "Clear"),
-                new CityDTO("2644210", "Liverpool", "16.5", "Rain"),
-                new CityDTO("2988507", "Paris", "22.4", "Clear"),
-                new CityDTO("2147714", "Sydney", "27.3", "Rain"),
-                new CityDTO("4930956", "Boston", "4.2", "Mist"),
-                new CityDTO("1796236", "Shanghai", "10.1", "Clouds"),
-                new CityDTO("3143244", "Oslo", "-3.9", "Clear")
-        );
+    private Map<String, Object> getThreadStatistics() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Map<String, Object> threads = new HashMap<>();
+        threads.put("virtualThreadsRequested", virtualThreadsRequested);
+        threads.put("javaVersion", Runtime.version().feature());
+        threads.put("live", threadBean.getThreadCount());
+        threads.put("peak", threadBean.getPeakThreadCount());
+        return threads;
     }
 
-    private WeatherResponseDTO convertToResponseDTO(OpenWeatherMapResponseDTO apiResponse) {
-        WeatherResponseDTO dto = new WeatherResponseDTO();
-        dto.setCityId(String.valueOf(apiResponse.getId()));
-        dto.setCityName(apiResponse.getName());
-
-        if (apiResponse.getSys() != null) {
-            dto.setCountry(apiResponse.getSys().getCountry());
-        } else {
-            dto.setCountry("N/A");
+    /**
+     * Makes sure every catalog city is in the ranking index and returns the
+     * current snapshot. The index counts the cities it is missing, so a
+     * complete ranking costs no catalog scan and no cache reads; otherwise only
+     * the missing cities go through the fan-out.
+     */
+    private RankingSnapshot ensureRanked(boolean forceRefresh) {
+        if (!forceRefresh && rankingIndex.isComplete()) {
+            return rankingIndex.snapshot();
         }
 
-        if (apiResponse.getMain() != null) {
-            dto.setTemperature(apiResponse.getMain().getTemp());
-            dto.setFeelsLike(apiResponse.getMain().getFeelsLike());
-            dto.setHumidity(apiResponse.getMain().getHumidity());
-            dto.setPressure(apiResponse.getMain().getPressure());
-        }
-
-        if (apiResponse.getWind() != null) {
-            dto.setWindSpeed(apiResponse.getWind().getSpeed());
-        }
-
-        if (apiResponse.getClouds() != null) {
-            dto.setCloudiness(apiResponse.getClouds().getAll());
-        }
-
-        dto.setVisibility(apiResponse.getVisibility());
-
-        if (apiResponse.getWeather() != null && !apiResponse.getWeather().isEmpty()) {
-            dto.setWeatherDescription(apiResponse.getWeather().get(0).getDescription());
-            dto.setWeatherIcon(String.format("https://openweathermap.org/img/wn/%s@2x.png",
-                    apiResponse.getWeather().get(0).getIcon()));
+        List<String> missing = new ArrayList<>();
+        for (CityDTO city : cityRegistry.getCities()) {
+            String cityId = city.getCityCode();
+            if (forceRefresh || isMissing(cityId)) {
+                missing.add(cityId);
+            }
         }
 
-        return dto;
-    }
+        if (!missing.isEmpty()) {
+            // One upstream group request per batch; batches run through the fan-out window
+            List<List<String>> batches = new ArrayList<>();
+            int batchSize = Math.max(1, cityWeatherLoader.getGroupSize());
+            for (int from = 0; from < missing.size(); from += batchSize) {
+                batches.add(missing.subList(from, Math.min(from + batchSize, missing.size())));
+            }
 
-    private OpenWeatherMapResponseDTO getMockWeatherData(String cityId) {
-        try {
-            ClassPathResource resource = new ClassPathResource("static/mock-weather-data.json");
-            Map<String, OpenWeatherMapResponseDTO> mockData = objectMapper.readValue(
-                    resource.getInputStream(),
-                    new TypeReference<Map<String, OpenWeatherMapResponseDTO>>() {}
-            );
-
-            OpenWeatherMapResponseDTO data = mockData.get(cityId);
-            if (data != null) {
-                return data;
+            List<WeatherResponseDTO> fetched = fanOutExecutor.fetchAllBatches(batches, batch -> forceRefresh
+                    ? cityWeatherLoader.refreshAllAsync(batch)
+                    : cityWeatherLoader.getAllAsync(batch));
+            for (WeatherResponseDTO weather : fetched) {
+                // Cached cities come back without an update event
+                if (!rankingIndex.contains(weather.getCityId())) {
+                    rankingIndex.update(weather.getCityId(), weather);
+                }
             }
-        } catch (Exception e) {
-            log.debug("Mock data file not found or error: {}", e.getMessage());
+            log.info("Fetched weather for {}/{} unranked cities in {} batches",
+                    fetched.size(), missing.size(), batches.size());
         }
 
-        return createDefaultMockData(cityId);
+        return rankingIndex.snapshot();
     }
 
-    private OpenWeatherMapResponseDTO createDefaultMockData(String cityId) {
-        OpenWeatherMapResponseDTO data = new OpenWeatherMapResponseDTO();
-        data.setId(Long.parseLong(cityId));
-
-        // Find city from cities.json
-        CityDTO city = loadCities().stream()
-                .filter(c -> c.getCityCode().equals(cityId))
-                .findFirst()
-                .orElse(new CityDTO(cityId, "Unknown City", "25.0", "Clear"));
-
-        data.setName(city.getCityName());
-
-        // Create main data
-        OpenWeatherMapResponseDTO.Main main = new OpenWeatherMapResponseDTO.Main();
-        try {
-            main.setTemp(Double.parseDouble(city.getTemp()));
-        } catch (NumberFormatException e) {
-            main.setTemp(25.0);
-        }
-        main.setFeelsLike(main.getTemp() + 2);
-        main.setHumidity(50.0 + (Math.random() * 40 - 20)); // 30-70%
-        main.setPressure(1013.0);
-        data.setMain(main);
-
-        // Create wind data
-        OpenWeatherMapResponseDTO.Wind wind = new OpenWeatherMapResponseDTO.Wind();
-        wind.setSpeed(2.5 + (Math.random() * 5)); // 2.5-7.5 m/s
-        data.setWind(wind);
-
-        // Create clouds data
-        OpenWeatherMapResponseDTO.Clouds clouds = new OpenWeatherMapResponseDTO.Clouds();
-        clouds.setAll(city.getStatus().equals("Clear") ? 0 :
-                city.getStatus().equals("Clouds") ? 40 : 60);
-        data.setClouds(clouds);
-
-        // Create weather data
-        OpenWeatherMapResponseDTO.Weather weather = new OpenWeatherMapResponseDTO.Weather();
-        weather.setMain(city.getStatus());
-        weather.setDescription(city.getStatus().toLowerCase());
-        weather.setIcon(city.getStatus().equals("Clear") ? "01d" : "03d");
-        data.setWeather(Arrays.asList(weather));
-
-        // Create sys data
-        OpenWeatherMapResponseDTO.Sys sys = new OpenWeatherMapResponseDTO.Sys();
-        sys.setCountry("XX");
-        data.setSys(sys);
-
-        data.setVisibility(10000);
-        data.setCod(200);
-
-        return data;
-    }
-
-    private WeatherResponseDTO createFallbackResponse(String cityId) {
-        CityDTO city = loadCities().stream()
-                .filter(c -> c.getCityCode().equals(cityId))
-                .findFirst()
-                .orElse(new CityDTO(cityId, "Unknown", "25.0", "Clear"));
-
-        WeatherResponseDTO dto = new WeatherResponseDTO();
-        dto.setCityId(cityId);
-        dto.setCityName(city.getCityName());
-        dto.setCountry("N/A");
-
-        try {
-            dto.setTemperature(Double.parseDouble(city.getTemp()));
-        } catch (NumberFormatException e) {
-            dto.setTemperature(25.0);
-        }
-
-        dto.setFeelsLike(dto.getTemperature() + 2);
-        dto.setHumidity(50.0);
-        dto.setPressure(1013.0);
-        dto.setWindSpeed(3.0);
-        dto.setCloudiness(city.getStatus().equals("Clear") ? 0 : 40);
-        dto.setVisibility(10000);
-        dto.setWeatherDescription(city.getStatus());
-        dto.setWeatherIcon("https://openweathermap.org/img/wn/03d@2x.png");
-        dto.setComfortScore(50.0);
-        dto.setComfortLevel("Moderate");
-        dto.setCacheStatus("FALLBACK");
-        dto.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-
-        return dto;
+    private boolean isMissing(String cityId) {
+        return !rankingIndex.contains(cityId);
     }
-}
\ No newline at end of file
+}
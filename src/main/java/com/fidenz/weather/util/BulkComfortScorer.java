@@ -0,0 +1,104 @@
+package com.fidenz.weather.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Branch-free bulk form of the comfort index for columnar data (backfills,
+ * what-if analyses). Every piece of each piecewise-linear sub-score is
+ * evaluated with exactly the expression {@link ComfortModel} uses, and the
+ * applicable one is picked with conditional selects rather than branches, so
+ * results are bit-for-bit identical to the scalar path while the loop body has
+ * no data-dependent jumps to mispredict.
+ * <p>
+ * When built with the {@code vector-api} profile and run with
+ * {@code --add-modules jdk.incubator.vector}, {@link #scoreAll} switches to
+ * {@code VectorComfortScorer}, which evaluates the same selects across SIMD
+ * lanes.
+ */
+@Slf4j
+public final class BulkComfortScorer {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final ComfortKernel BRANCH_FREE = BulkComfortScorer::scoreBranchFree;
+
+    private static final ComfortKernel KERNEL = selectKernel();
+
+    private BulkComfortScorer() {
+    }
+
+    /**
+     * Scores every reading into {@code scores}, as
+     * {@link ComfortModel#score(double, double, double)} would. NaN marks a
+     * missing reading.
+     */
+    public static void scoreAll(ComfortModel model, double[] tempCelsius, double[] humidity, double[] windSpeed,
+                                double[] scores) {
+        int length = scores.length;
+        if (tempCelsius.length != length || humidity.length != length || windSpeed.length != length) {
+            throw new IllegalArgumentException("Input and output arrays must have the same length");
+        }
+        KERNEL.scoreAll(model, tempCelsius, humidity, windSpeed, scores);
+    }
+
+    /**
+     * Whether {@link #scoreAll} runs on the Vector API in this JVM.
+     */
+    public static boolean isVectorized() {
+        return KERNEL != BRANCH_FREE;
+    }
+
+    static double score(ComfortModel model, double tempCelsius, double humidity, double windSpeed) {
+        double comfortScore = (bandScore(model.temperature, tempCelsius) * model.temperatureWeight)
+                + (bandScore(model.humidity, humidity) * model.humidityWeight)
+                + (windScore(model, windSpeed) * model.windWeight);
+        comfortScore = Math.max(0, Math.min(100, comfortScore));
+        return Math.round(comfortScore * 10.0) / 10.0;
+    }
+
+    static void scoreBranchFree(ComfortModel model, double[] tempCelsius, double[] humidity, double[] windSpeed,
+                                double[] scores) {
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = score(model, tempCelsius[i], humidity[i], windSpeed[i]);
+        }
+    }
+
+    // The rising and falling ramps share one division: only the ramp's origin
+    // and width are selected up front, then the same expression as the scalar
+    // code runs
+    static double bandScore(ComfortModel.Band band, double v) {
+        boolean belowOptimum = v < band.optimalLow;
+        double ramp = ((v - (belowOptimum ? band.low : band.optimalHigh))
+                / (belowOptimum ? band.lowWidth : band.highWidth)) * 50;
+        double outside = Math.max(0,
+                50 - Math.min(Math.abs(v - band.optimalLow), Math.abs(v - band.optimalHigh)) * band.outsideSlope);
+
+        double score = belowOptimum ? 50 + ramp : 100 - ramp;
+        score = (v >= band.low & v <= band.high) ? score : outside;
+        score = (v >= band.optimalLow & v <= band.optimalHigh) ? 100 : score;
+        return v != v ? ComfortIndexCalculator.NEUTRAL_SCORE : score;
+    }
+
+    static double windScore(ComfortModel model, double w) {
+        double windKmh = w * 3.6;
+        double moderate = 100 - ((windKmh - model.windOptimalKmh) / model.windModerateWidth) * 50;
+        double strong = Math.max(0, 50 - (windKmh - model.windModerateKmh) * model.windStrongSlope);
+
+        double score = windKmh <= model.windModerateKmh ? moderate : strong;
+        score = windKmh <= model.windOptimalKmh ? 100 : score;
+        return w != w ? ComfortIndexCalculator.NEUTRAL_SCORE : score;
+    }
+
+    private static ComfortKernel selectKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (ComfortKernel) Class.forName(BulkComfortScorer.class.getPackageName() + ".VectorComfortScorer")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.debug("Vector API comfort scorer not available: {}", e.toString());
+            }
+        }
+        return BRANCH_FREE;
+    }
+}
@@ -2,86 +2,112 @@ package com.fidenz.weather.util;
 
 import com.fidenz.weather.dto.ComfortIndexResponse;
 import com.fidenz.weather.dto.WeatherResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Comfort index from temperature, humidity and wind. The primitive
+ * {@link #score(double, double, double)} and bulk {@link #scoreAll} methods do
+ * not allocate; {@link #calculateComfortIndex(WeatherResponseDTO)} wraps them
+ * for the DTO-based callers. A missing reading (null in the DTO, NaN in the
+ * primitive API) contributes a neutral sub-score of 50.
+ * <p>
+ * The parameters come from the active {@link ComfortModel}, replaced as a
+ * whole by {@link #setModel(ComfortModel)}; every call reads it once, so a
+ * score never mixes two models. With {@code weather.comfort.lookup-table=true}
+ * the sub-scores come from {@link LookupComfortScorer}'s precomputed tables
+ * instead of the formulas; see there for the error bounds.
+ */
 @Component
 public class ComfortIndexCalculator {
 
-    public ComfortIndexResponse calculateComfortIndex(WeatherResponseDTO weather) {
-        // Temperature scoring: Optimal 20-25°C = 100, range 15-30°C
-        double tempScore = calculateTemperatureScore(weather.getTemperature());
-
-        // Humidity scoring: Optimal 40-60% = 100, range 30-70%
-        double humidityScore = calculateHumidityScore(weather.getHumidity());
+    static final double NEUTRAL_SCORE = 50;
 
-        // Wind speed scoring: Optimal 0-5 km/h = 100, range 0-20 km/h
-        double windScore = calculateWindScore(weather.getWindSpeed());
+    private final boolean lookupTable;
 
-        // Weighted average: Temperature 40%, Humidity 30%, Wind 30%
-        double comfortScore = (tempScore * 0.4) + (humidityScore * 0.3) + (windScore * 0.3);
+    private volatile Active active;
 
-        // Ensure score is between 0-100
-        comfortScore = Math.max(0, Math.min(100, comfortScore));
+    public ComfortIndexCalculator(@Value("${weather.comfort.lookup-table:false}") boolean lookupTable) {
+        this.lookupTable = lookupTable;
+        this.active = compile(ComfortModel.DEFAULT);
+    }
 
-        String comfortLevel = getComfortLevel(comfortScore);
+    public ComfortIndexResponse calculateComfortIndex(WeatherResponseDTO weather) {
+        Active scoring = active;
+        ComfortModel model = scoring.model();
+        LookupComfortScorer lookup = scoring.lookup();
+        double temperature = valueOrNaN(weather.getTemperature());
+        double humidity = valueOrNaN(weather.getHumidity());
+        double windSpeed = valueOrNaN(weather.getWindSpeed());
+        double tempScore = lookup != null ? lookup.temperatureScore(temperature) : model.temperatureScore(temperature);
+        double humidityScore = lookup != null ? lookup.humidityScore(humidity) : model.humidityScore(humidity);
+        double windScore = lookup != null ? lookup.windScore(windSpeed) : model.windScore(windSpeed);
+        double comfortScore = model.combine(tempScore, humidityScore, windScore);
 
         return new ComfortIndexResponse(
-                Math.round(comfortScore * 10.0) / 10.0,
-                comfortLevel,
+                ComfortModel.round(comfortScore),
+                model.level(comfortScore),
                 tempScore,
                 humidityScore,
                 windScore
         );
     }
 
-    private double calculateTemperatureScore(double tempCelsius) {
-        if (tempCelsius >= 20 && tempCelsius <= 25) {
-            return 100;
-        } else if (tempCelsius >= 15 && tempCelsius <= 30) {
-            if (tempCelsius < 20) {
-                return 50 + ((tempCelsius - 15) / 5) * 50;
-            } else {
-                return 100 - ((tempCelsius - 25) / 5) * 50;
-            }
-        } else {
-            double diff = Math.min(Math.abs(tempCelsius - 20), Math.abs(tempCelsius - 25));
-            return Math.max(0, 50 - diff * 10);
+    /**
+     * Comfort score (0-100, rounded to one decimal) for a single reading.
+     * Pass {@link Double#NaN} for a missing value.
+     */
+    public double score(double tempCelsius, double humidity, double windSpeed) {
+        Active scoring = active;
+        if (scoring.lookup() != null) {
+            return scoring.lookup().score(tempCelsius, humidity, windSpeed);
         }
+        return scoring.model().score(tempCelsius, humidity, windSpeed);
     }
 
-    private double calculateHumidityScore(double humidity) {
-        if (humidity >= 40 && humidity <= 60) {
-            return 100;
-        } else if (humidity >= 30 && humidity <= 70) {
-            if (humidity < 40) {
-                return 50 + ((humidity - 30) / 10) * 50;
-            } else {
-                return 100 - ((humidity - 60) / 10) * 50;
-            }
-        } else {
-            double diff = Math.min(Math.abs(humidity - 40), Math.abs(humidity - 60));
-            return Math.max(0, 50 - diff * 5);
+    /**
+     * Scores every reading in the input arrays into {@code scores}. All arrays
+     * must have the same length; NaN marks a missing value. Uses the
+     * {@link BulkComfortScorer} (branch-free, or SIMD on the Vector API), which
+     * gives identical results, or the lookup tables when enabled.
+     */
+    public void scoreAll(double[] tempCelsius, double[] humidity, double[] windSpeed, double[] scores) {
+        Active scoring = active;
+        if (scoring.lookup() != null) {
+            scoring.lookup().scoreAll(tempCelsius, humidity, windSpeed, scores);
+            return;
         }
+        BulkComfortScorer.scoreAll(scoring.model(), tempCelsius, humidity, windSpeed, scores);
     }
 
-    private double calculateWindScore(double windSpeed) {
-        // Convert to km/h for scoring
-        double windKmh = windSpeed * 3.6;
+    public String getComfortLevel(double score) {
+        return active.model().level(score);
+    }
 
-        if (windKmh <= 5) {
-            return 100;
-        } else if (windKmh <= 20) {
-            return 100 - ((windKmh - 5) / 15) * 50;
-        } else {
-            return Math.max(0, 50 - (windKmh - 20) * 2);
-        }
+    public ComfortModel getModel() {
+        return active.model();
+    }
+
+    /**
+     * Makes {@code model} the active one. In lookup-table mode its tables are
+     * built before the swap, so scoring never waits on them.
+     */
+    public void setModel(ComfortModel model) {
+        active = compile(model);
+    }
+
+    public boolean isLookupTable() {
+        return lookupTable;
+    }
+
+    private Active compile(ComfortModel model) {
+        return new Active(model, lookupTable ? new LookupComfortScorer(model) : null);
+    }
+
+    private static double valueOrNaN(Double value) {
+        return value != null ? value : Double.NaN;
     }
 
-    private String getComfortLevel(double score) {
-        if (score >= 80) return "Very Comfortable";
-        if (score >= 60) return "Comfortable";
-        if (score >= 40) return "Moderate";
-        if (score >= 20) return "Uncomfortable";
-        return "Very Uncomfortable";
+    private record Active(ComfortModel model, LookupComfortScorer lookup) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.fidenz.weather.util;
+
+/**
+ * A bulk scoring loop over columnar readings; see {@link BulkComfortScorer}.
+ */
+interface ComfortKernel {
+
+    void scoreAll(ComfortModel model, double[] tempCelsius, double[] humidity, double[] windSpeed, double[] scores);
+}
@@ -0,0 +1,242 @@
+package com.fidenz.weather.util;
+
+import com.fidenz.weather.dto.ComfortModelDTO;
+
+/**
+ * Compiled, immutable comfort model: sub-score weights, the temperature and
+ * humidity bands, the wind breakpoints and the level thresholds, validated and
+ * flattened into final fields so scoring is plain arithmetic. Instances are
+ * built from a {@link ComfortModelDTO} and swapped atomically in
+ * {@link ComfortIndexCalculator}; {@link #DEFAULT} is the original model.
+ */
+public final class ComfortModel {
+
+    public static final ComfortModel DEFAULT = new ComfortModel(0,
+            0.4, 0.3, 0.3,
+            new Band(15, 20, 25, 30, 10),
+            new Band(30, 40, 60, 70, 5),
+            5, 20, 2,
+            80, 60, 40, 20);
+
+    final long version;
+
+    final double temperatureWeight;
+    final double humidityWeight;
+    final double windWeight;
+
+    final Band temperature;
+    final Band humidity;
+
+    final double windOptimalKmh;
+    final double windModerateKmh;
+    final double windModerateWidth;
+    final double windStrongSlope;
+
+    final double veryComfortable;
+    final double comfortable;
+    final double moderate;
+    final double uncomfortable;
+
+    private ComfortModel(long version, double temperatureWeight, double humidityWeight, double windWeight,
+                         Band temperature, Band humidity,
+                         double windOptimalKmh, double windModerateKmh, double windStrongSlope,
+                         double veryComfortable, double comfortable, double moderate, double uncomfortable) {
+        this.version = version;
+        this.temperatureWeight = temperatureWeight;
+        this.humidityWeight = humidityWeight;
+        this.windWeight = windWeight;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.windOptimalKmh = windOptimalKmh;
+        this.windModerateKmh = windModerateKmh;
+        this.windModerateWidth = windModerateKmh - windOptimalKmh;
+        this.windStrongSlope = windStrongSlope;
+        this.veryComfortable = veryComfortable;
+        this.comfortable = comfortable;
+        this.moderate = moderate;
+        this.uncomfortable = uncomfortable;
+    }
+
+    /**
+     * Validates and compiles a model definition. Omitted sections and values
+     * keep the {@link #DEFAULT} ones.
+     *
+     * @throws IllegalArgumentException if a weight or slope is negative, the
+     *                                  bands are not ordered or the level
+     *                                  thresholds are not descending
+     */
+    public static ComfortModel compile(ComfortModelDTO definition, long version) {
+        ComfortModelDTO.Weights weights = definition.getWeights() != null
+                ? definition.getWeights() : new ComfortModelDTO.Weights();
+        ComfortModelDTO.Wind wind = definition.getWind() != null
+                ? definition.getWind() : new ComfortModelDTO.Wind();
+        ComfortModelDTO.Levels levels = definition.getLevels() != null
+                ? definition.getLevels() : new ComfortModelDTO.Levels();
+
+        ComfortModel model = new ComfortModel(version,
+                nonNegative("weights.temperature", or(weights.getTemperature(), DEFAULT.temperatureWeight)),
+                nonNegative("weights.humidity", or(weights.getHumidity(), DEFAULT.humidityWeight)),
+                nonNegative("weights.wind", or(weights.getWind(), DEFAULT.windWeight)),
+                Band.compile("temperature", definition.getTemperature(), DEFAULT.temperature),
+                Band.compile("humidity", definition.getHumidity(), DEFAULT.humidity),
+                nonNegative("wind.optimal_kmh", or(wind.getOptimalKmh(), DEFAULT.windOptimalKmh)),
+                or(wind.getModerateKmh(), DEFAULT.windModerateKmh),
+                nonNegative("wind.strong_slope", or(wind.getStrongSlope(), DEFAULT.windStrongSlope)),
+                or(levels.getVeryComfortable(), DEFAULT.veryComfortable),
+                or(levels.getComfortable(), DEFAULT.comfortable),
+                or(levels.getModerate(), DEFAULT.moderate),
+                or(levels.getUncomfortable(), DEFAULT.uncomfortable));
+
+        if (model.temperatureWeight + model.humidityWeight + model.windWeight <= 0) {
+            throw new IllegalArgumentException("At least one comfort weight must be positive");
+        }
+        if (!(model.windModerateWidth > 0)) {
+            throw new IllegalArgumentException("wind.moderate_kmh must be greater than wind.optimal_kmh");
+        }
+        if (!(model.veryComfortable >= model.comfortable && model.comfortable >= model.moderate
+                && model.moderate >= model.uncomfortable)) {
+            throw new IllegalArgumentException("Comfort level thresholds must be descending");
+        }
+        return model;
+    }
+
+    public ComfortModelDTO toDefinition() {
+        return new ComfortModelDTO(version,
+                new ComfortModelDTO.Weights(temperatureWeight, humidityWeight, windWeight),
+                temperature.toDefinition(),
+                humidity.toDefinition(),
+                new ComfortModelDTO.Wind(windOptimalKmh, windModerateKmh, windStrongSlope),
+                new ComfortModelDTO.Levels(veryComfortable, comfortable, moderate, uncomfortable));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Comfort score (0-100, rounded to one decimal) for a single reading. Pass
+     * {@link Double#NaN} for a missing value.
+     */
+    public double score(double tempCelsius, double humidity, double windSpeed) {
+        return round(combine(temperatureScore(tempCelsius), humidityScore(humidity), windScore(windSpeed)));
+    }
+
+    public double temperatureScore(double tempCelsius) {
+        return temperature.score(tempCelsius);
+    }
+
+    public double humidityScore(double humidity) {
+        return this.humidity.score(humidity);
+    }
+
+    // Wind speed arrives in m/s and is scored in km/h
+    public double windScore(double windSpeed) {
+        if (Double.isNaN(windSpeed)) {
+            return ComfortIndexCalculator.NEUTRAL_SCORE;
+        }
+        double windKmh = windSpeed * 3.6;
+
+        if (windKmh <= windOptimalKmh) {
+            return 100;
+        } else if (windKmh <= windModerateKmh) {
+            return 100 - ((windKmh - windOptimalKmh) / windModerateWidth) * 50;
+        } else {
+            return Math.max(0, 50 - (windKmh - windModerateKmh) * windStrongSlope);
+        }
+    }
+
+    /**
+     * Weighted sum of the sub-scores, clamped to 0-100.
+     */
+    public double combine(double tempScore, double humidityScore, double windScore) {
+        double comfortScore = (tempScore * temperatureWeight) + (humidityScore * humidityWeight)
+                + (windScore * windWeight);
+        return Math.max(0, Math.min(100, comfortScore));
+    }
+
+    public String level(double score) {
+        if (score >= veryComfortable) return "Very Comfortable";
+        if (score >= comfortable) return "Comfortable";
+        if (score >= moderate) return "Moderate";
+        if (score >= uncomfortable) return "Uncomfortable";
+        return "Very Uncomfortable";
+    }
+
+    static double round(double comfortScore) {
+        return Math.round(comfortScore * 10.0) / 10.0;
+    }
+
+    private static double or(Double value, double fallback) {
+        return value != null ? value : fallback;
+    }
+
+    private static double nonNegative(String name, double value) {
+        if (!(value >= 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(name + " must be a finite, non-negative number");
+        }
+        return value;
+    }
+
+    /**
+     * A band scored 100 inside [{@code optimalLow}, {@code optimalHigh}],
+     * ramping linearly to 50 at {@code low}/{@code high}, and decaying by
+     * {@code outsideSlope} per unit of distance from the optimal band outside.
+     */
+    static final class Band {
+        final double low;
+        final double optimalLow;
+        final double optimalHigh;
+        final double high;
+        final double outsideSlope;
+        final double lowWidth;
+        final double highWidth;
+
+        Band(double low, double optimalLow, double optimalHigh, double high, double outsideSlope) {
+            this.low = low;
+            this.optimalLow = optimalLow;
+            this.optimalHigh = optimalHigh;
+            this.high = high;
+            this.outsideSlope = outsideSlope;
+            this.lowWidth = optimalLow - low;
+            this.highWidth = high - optimalHigh;
+        }
+
+        static Band compile(String name, ComfortModelDTO.Band definition, Band defaults) {
+            if (definition == null) {
+                return defaults;
+            }
+            Band band = new Band(
+                    or(definition.getLow(), defaults.low),
+                    or(definition.getOptimalLow(), defaults.optimalLow),
+                    or(definition.getOptimalHigh(), defaults.optimalHigh),
+                    or(definition.getHigh(), defaults.high),
+                    nonNegative(name + ".outside_slope", or(definition.getOutsideSlope(), defaults.outsideSlope)));
+            if (!(band.low < band.optimalLow && band.optimalLow <= band.optimalHigh && band.optimalHigh < band.high)) {
+                throw new IllegalArgumentException(name + " band must satisfy low < optimal_low <= optimal_high < high");
+            }
+            return band;
+        }
+
+        double score(double value) {
+            if (Double.isNaN(value)) {
+                return ComfortIndexCalculator.NEUTRAL_SCORE;
+            }
+            if (value >= optimalLow && value <= optimalHigh) {
+                return 100;
+            } else if (value >= low && value <= high) {
+                if (value < optimalLow) {
+                    return 50 + ((value - low) / lowWidth) * 50;
+                } else {
+                    return 100 - ((value - optimalHigh) / highWidth) * 50;
+                }
+            } else {
+                double diff = Math.min(Math.abs(value - optimalLow), Math.abs(value - optimalHigh));
+                return Math.max(0, 50 - diff * outsideSlope);
+            }
+        }
+
+        ComfortModelDTO.Band toDefinition() {
+            return new ComfortModelDTO.Band(low, optimalLow, optimalHigh, high, outsideSlope);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.fidenz.weather.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram that can be recorded from many threads without
+ * locking. A value lands in the first bucket whose upper bound it does not
+ * exceed; anything above the last bound goes to an overflow bucket.
+ */
+public class Histogram {
+
+    private final long[] upperBounds;
+    private final AtomicLongArray counts;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram(long... upperBounds) {
+        this.upperBounds = upperBounds.clone();
+        Arrays.sort(this.upperBounds);
+        this.counts = new AtomicLongArray(upperBounds.length + 1);
+    }
+
+    public void record(long value) {
+        int bucket = Arrays.binarySearch(upperBounds, value);
+        counts.incrementAndGet(bucket >= 0 ? bucket : -bucket - 1);
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Count, mean, max and per-bucket counts keyed by {@code <=bound} (plus
+     * {@code >lastBound}), for statistics endpoints.
+     */
+    public Map<String, Object> snapshot() {
+        long total = count.sum();
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < upperBounds.length; i++) {
+            buckets.put("<=" + upperBounds[i], counts.get(i));
+        }
+        buckets.put(">" + upperBounds[upperBounds.length - 1], counts.get(upperBounds.length));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("mean", total == 0 ? 0.0 : (double) sum.sum() / total);
+        snapshot.put("max", max.get());
+        snapshot.put("buckets", buckets);
+        return snapshot;
+    }
+}
@@ -0,0 +1,135 @@
+package com.fidenz.weather.util;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Lookup-table form of the comfort sub-scores for high-QPS scoring. Each
+ * sub-score is sampled once at a fixed resolution (0.01 °C over -60..60 °C,
+ * 0.1 % over 0..100 %, 0.01 m/s over 0..15 m/s) and read back by linear
+ * interpolation between the two neighbouring samples.
+ * <p>
+ * Error bounds: the sub-scores are piecewise linear, so interpolating inside
+ * one linear piece only adds floating-point rounding. Cells next to one of the
+ * model's breakpoints or discontinuities (15/20/25/30 °C, 30/40/60/70 %,
+ * 5/20/45 km/h for {@link ComfortModel#DEFAULT}) and readings outside the
+ * tables (or NaN) fall back to the exact {@link ComfortModel} formulas. Every
+ * sub-score is therefore within {@value #SUB_SCORE_TOLERANCE} of the exact
+ * one, and a rounded comfort score differs from the exact one by at most 0.1,
+ * only when the exact score lies that close to a rounding boundary.
+ * <p>
+ * Tables belong to one model; {@link ComfortIndexCalculator} builds a new
+ * instance whenever the model is replaced.
+ */
+public final class LookupComfortScorer {
+
+    /**
+     * Largest absolute difference between a table sub-score and the exact one.
+     */
+    public static final double SUB_SCORE_TOLERANCE = 1e-9;
+
+    private final ComfortModel model;
+    private final Table temperature;
+    private final Table humidity;
+    private final Table wind;
+
+    public LookupComfortScorer(ComfortModel model) {
+        this.model = model;
+        this.temperature = new Table(model::temperatureScore, -60, 60, 0.01, breakpoints(model.temperature));
+        this.humidity = new Table(model::humidityScore, 0, 100, 0.1, breakpoints(model.humidity));
+        // Wind is tabulated in m/s but its breakpoints are in km/h; the last
+        // one is where the strong-wind decay reaches zero
+        double zeroKmh = model.windStrongSlope > 0
+                ? model.windModerateKmh + 50 / model.windStrongSlope : model.windModerateKmh;
+        this.wind = new Table(model::windScore, 0, 15, 0.01,
+                model.windOptimalKmh / 3.6, model.windModerateKmh / 3.6, zeroKmh / 3.6);
+    }
+
+    /**
+     * Comfort score (0-100, rounded to one decimal) from the tables. Pass
+     * {@link Double#NaN} for a missing value.
+     */
+    public double score(double tempCelsius, double humidity, double windSpeed) {
+        return ComfortModel.round(model.combine(
+                temperatureScore(tempCelsius), humidityScore(humidity), windScore(windSpeed)));
+    }
+
+    public void scoreAll(double[] tempCelsius, double[] humidity, double[] windSpeed, double[] scores) {
+        int length = scores.length;
+        if (tempCelsius.length != length || humidity.length != length || windSpeed.length != length) {
+            throw new IllegalArgumentException("Input and output arrays must have the same length");
+        }
+        for (int i = 0; i < length; i++) {
+            scores[i] = score(tempCelsius[i], humidity[i], windSpeed[i]);
+        }
+    }
+
+    double temperatureScore(double tempCelsius) {
+        return temperature.get(tempCelsius);
+    }
+
+    double humidityScore(double humidity) {
+        return this.humidity.get(humidity);
+    }
+
+    double windScore(double windSpeed) {
+        return wind.get(windSpeed);
+    }
+
+    // Ramp ends plus the points where the outside decay reaches zero
+    private static double[] breakpoints(ComfortModel.Band band) {
+        double reach = band.outsideSlope > 0 ? 50 / band.outsideSlope : 0;
+        return new double[]{band.low, band.optimalLow, band.optimalHigh, band.high,
+                band.optimalLow - reach, band.optimalHigh + reach};
+    }
+
+    /**
+     * Samples of one sub-score, stored as interleaved (value, slope) pairs per
+     * cell so a lookup touches a single cache line. A NaN slope marks a cell
+     * that must be computed exactly.
+     */
+    private static final class Table {
+        private final DoubleUnaryOperator exact;
+        private final double min;
+        private final double invStep;
+        private final int cells;
+        private final double[] samples;
+
+        Table(DoubleUnaryOperator exact, double min, double max, double step, double... breakpoints) {
+            this.exact = exact;
+            this.min = min;
+            this.invStep = 1 / step;
+            this.cells = (int) Math.round((max - min) * invStep);
+            this.samples = new double[cells * 2];
+
+            double previous = exact.applyAsDouble(min);
+            for (int i = 0; i < cells; i++) {
+                double next = exact.applyAsDouble(min + (i + 1) * step);
+                samples[2 * i] = previous;
+                samples[2 * i + 1] = next - previous;
+                previous = next;
+            }
+            // Keep a one-cell margin so sampling error around the breakpoint
+            // can never interpolate across it
+            for (double breakpoint : breakpoints) {
+                int cell = (int) Math.floor((breakpoint - min) * invStep);
+                for (int i = Math.max(0, cell - 1); i <= Math.min(cells - 1, cell + 1); i++) {
+                    samples[2 * i + 1] = Double.NaN;
+                }
+            }
+        }
+
+        double get(double value) {
+            double x = (value - min) * invStep;
+            // Also rejects NaN
+            if (!(x >= 0 && x < cells)) {
+                return exact.applyAsDouble(value);
+            }
+            int cell = (int) x;
+            double slope = samples[2 * cell + 1];
+            if (slope != slope) {
+                return exact.applyAsDouble(value);
+            }
+            return samples[2 * cell] + slope * (x - cell);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.fidenz.weather.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects individual requests into batches. A batch is dispatched to the
+ * batch loader as soon as it holds {@code maxBatchSize} distinct keys, or
+ * {@code maxWaitMillis} after its first key arrived, whichever comes first.
+ * Each caller's future is completed from the batch result; a key submitted
+ * twice while its batch is open shares one slot.
+ * <p>
+ * Batch sizes and per-request wait times (microseconds from submit to
+ * dispatch) are recorded in histograms for tuning.
+ */
+public class MicroBatcher<K, V> {
+
+    private static final long[] SIZE_BUCKETS = {1, 2, 4, 8, 12, 16, 20, 32, 64};
+    private static final long[] WAIT_BUCKETS_MICROS = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000};
+
+    private final int maxBatchSize;
+    private final long maxWaitMillis;
+    private final Function<List<K>, CompletableFuture<Map<K, V>>> batchLoader;
+    private final ScheduledExecutorService scheduler;
+
+    // A ReentrantLock rather than synchronized so virtual threads never pin on it
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<K, Pending<V>> open = new LinkedHashMap<>();
+    private long batchNumber;
+
+    private final Histogram batchSizes = new Histogram(SIZE_BUCKETS);
+    private final Histogram waitMicros = new Histogram(WAIT_BUCKETS_MICROS);
+
+    public MicroBatcher(int maxBatchSize, long maxWaitMillis,
+                        Function<List<K>, CompletableFuture<Map<K, V>>> batchLoader,
+                        ScheduledExecutorService scheduler) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.batchLoader = batchLoader;
+        this.scheduler = scheduler;
+    }
+
+    public CompletableFuture<V> submit(K key) {
+        Map<K, Pending<V>> ready = null;
+        CompletableFuture<V> result;
+
+        lock.lock();
+        try {
+            Pending<V> pending = open.get(key);
+            if (pending == null) {
+                pending = new Pending<>(new CompletableFuture<>(), System.nanoTime());
+                open.put(key, pending);
+                if (open.size() == 1 && maxBatchSize > 1) {
+                    long batch = batchNumber;
+                    scheduler.schedule(() -> flush(batch), maxWaitMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            result = pending.future();
+            if (open.size() >= maxBatchSize) {
+                ready = close();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return result.copy();
+    }
+
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public Histogram getWaitMicros() {
+        return waitMicros;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    private void flush(long batch) {
+        Map<K, Pending<V>> ready;
+        lock.lock();
+        try {
+            // The batch may already have been dispatched because it filled up
+            if (batch != batchNumber || open.isEmpty()) {
+                return;
+            }
+            ready = close();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(ready);
+    }
+
+    private Map<K, Pending<V>> close() {
+        Map<K, Pending<V>> batch = open;
+        open = new LinkedHashMap<>();
+        batchNumber++;
+        return batch;
+    }
+
+    private void dispatch(Map<K, Pending<V>> batch) {
+        long now = System.nanoTime();
+        batchSizes.record(batch.size());
+        batch.values().forEach(pending -> waitMicros.record((now - pending.enqueuedAtNanos()) / 1_000));
+
+        CompletableFuture<Map<K, V>> call;
+        try {
+            call = batchLoader.apply(List.copyOf(batch.keySet()));
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        call.whenComplete((values, failure) -> batch.forEach((key, pending) -> {
+            if (failure != null) {
+                pending.future().completeExceptionally(failure);
+            } else if (values == null || !values.containsKey(key)) {
+                pending.future().completeExceptionally(new IllegalStateException("No result for " + key));
+            } else {
+                pending.future().complete(values.get(key));
+            }
+        }));
+    }
+
+    private record Pending<V>(CompletableFuture<V> future, long enqueuedAtNanos) {
+    }
+}
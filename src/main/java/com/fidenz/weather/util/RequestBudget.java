@@ -0,0 +1,36 @@
+package com.fidenz.weather.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spaces requests evenly so that no more than {@code requestsPerMinute} are
+ * started in any one-minute window. Callers reserve a slot and get back the
+ * time (epoch millis) at which they may issue their request.
+ */
+public class RequestBudget {
+
+    private final long spacingMillis;
+    private final AtomicLong nextSlot = new AtomicLong();
+
+    public RequestBudget(int requestsPerMinute) {
+        if (requestsPerMinute <= 0) {
+            throw new IllegalArgumentException("requestsPerMinute must be positive");
+        }
+        this.spacingMillis = Math.max(1, TimeUnit.MINUTES.toMillis(1) / requestsPerMinute);
+    }
+
+    public long reserve(long nowMillis) {
+        while (true) {
+            long slot = nextSlot.get();
+            long granted = Math.max(slot, nowMillis);
+            if (nextSlot.compareAndSet(slot, granted + spacingMillis)) {
+                return granted;
+            }
+        }
+    }
+
+    public long getSpacingMillis() {
+        return spacingMillis;
+    }
+}
@@ -0,0 +1,76 @@
+package com.fidenz.weather.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution. The first
+ * caller runs the supplier; callers arriving while it is in flight wait for and
+ * share its result (or exception) instead of running it again.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> supplier) {
+        return await(executeAsync(key, () -> CompletableFuture.completedFuture(supplier.get())));
+    }
+
+    /**
+     * Asynchronous variant: the supplier starts the call and returns its future.
+     * Callers arriving before that future completes get a view of the same one.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> supplier) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        executions.increment();
+        try {
+            supplier.get().whenComplete((value, failure) -> {
+                inFlight.remove(key, call);
+                if (failure != null) {
+                    call.completeExceptionally(failure);
+                } else {
+                    call.complete(value);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+        }
+        return call.copy();
+    }
+
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
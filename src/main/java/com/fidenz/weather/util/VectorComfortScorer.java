@@ -0,0 +1,77 @@
+package com.fidenz.weather.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD form of {@link BulkComfortScorer}'s branch-free loop on the incubating
+ * Vector API. Only compiled by the {@code vector-api} Maven profile and only
+ * picked up when the JVM runs with {@code --add-modules jdk.incubator.vector}.
+ * Each lane evaluates the same IEEE expressions in the same order (no fused
+ * multiply-add), so results stay bit-for-bit identical to the scalar path.
+ */
+final class VectorComfortScorer implements ComfortKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void scoreAll(ComfortModel model, double[] tempCelsius, double[] humidity, double[] windSpeed,
+                         double[] scores) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(scores.length); i < bound; i += SPECIES.length()) {
+            DoubleVector comfortScore = band(model.temperature, DoubleVector.fromArray(SPECIES, tempCelsius, i))
+                    .mul(model.temperatureWeight)
+                    .add(band(model.humidity, DoubleVector.fromArray(SPECIES, humidity, i)).mul(model.humidityWeight))
+                    .add(wind(model, DoubleVector.fromArray(SPECIES, windSpeed, i)).mul(model.windWeight));
+            round(comfortScore.min(100).max(0)).intoArray(scores, i);
+        }
+        for (; i < scores.length; i++) {
+            scores[i] = BulkComfortScorer.score(model, tempCelsius[i], humidity[i], windSpeed[i]);
+        }
+    }
+
+    /**
+     * Lane-wise {@link BulkComfortScorer#bandScore(ComfortModel.Band, double)}.
+     */
+    private static DoubleVector band(ComfortModel.Band band, DoubleVector v) {
+        VectorMask<Double> belowOptimum = v.compare(VectorOperators.LT, band.optimalLow);
+        DoubleVector ramp = v.sub(DoubleVector.broadcast(SPECIES, band.optimalHigh).blend(band.low, belowOptimum))
+                .div(DoubleVector.broadcast(SPECIES, band.highWidth).blend(band.lowWidth, belowOptimum))
+                .mul(50);
+        DoubleVector outside = DoubleVector.broadcast(SPECIES, 50)
+                .sub(v.sub(band.optimalLow).abs().min(v.sub(band.optimalHigh).abs()).mul(band.outsideSlope))
+                .max(0);
+
+        DoubleVector score = DoubleVector.broadcast(SPECIES, 100).sub(ramp).blend(ramp.add(50), belowOptimum);
+        score = outside.blend(score,
+                v.compare(VectorOperators.GE, band.low).and(v.compare(VectorOperators.LE, band.high)));
+        score = score.blend(100,
+                v.compare(VectorOperators.GE, band.optimalLow).and(v.compare(VectorOperators.LE, band.optimalHigh)));
+        return score.blend(ComfortIndexCalculator.NEUTRAL_SCORE, v.test(VectorOperators.IS_NAN));
+    }
+
+    private static DoubleVector wind(ComfortModel model, DoubleVector w) {
+        DoubleVector windKmh = w.mul(3.6);
+        DoubleVector moderate = DoubleVector.broadcast(SPECIES, 100)
+                .sub(windKmh.sub(model.windOptimalKmh).div(model.windModerateWidth).mul(50));
+        DoubleVector strong = DoubleVector.broadcast(SPECIES, 50)
+                .sub(windKmh.sub(model.windModerateKmh).mul(model.windStrongSlope))
+                .max(0);
+
+        DoubleVector score = strong.blend(moderate, windKmh.compare(VectorOperators.LE, model.windModerateKmh));
+        score = score.blend(100, windKmh.compare(VectorOperators.LE, model.windOptimalKmh));
+        return score.blend(ComfortIndexCalculator.NEUTRAL_SCORE, w.test(VectorOperators.IS_NAN));
+    }
+
+    // Math.round(x * 10.0) / 10.0 for x in [0, 100]: floor(x + 0.5) is exact
+    // there once x >= 0.5, and everything below rounds to zero
+    private static DoubleVector round(DoubleVector score) {
+        DoubleVector tenths = score.mul(10.0);
+        DoubleVector rounded = (DoubleVector) tenths.add(0.5)
+                .convert(VectorOperators.D2L, 0)
+                .convert(VectorOperators.L2D, 0);
+        return rounded.blend(0, tenths.compare(VectorOperators.LT, 0.5)).div(10.0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.fidenz.weather.benchmark;
+
+import com.fidenz.weather.dto.ComfortIndexResponse;
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.util.BulkComfortScorer;
+import com.fidenz.weather.util.ComfortIndexCalculator;
+import com.fidenz.weather.util.ComfortModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comfort scoring throughput and allocation. Run with the GC profiler and
+ * check {@code gc.alloc.rate.norm}: the primitive and bulk paths should report
+ * ~0 B/op, the DTO wrapper the size of one {@link ComfortIndexResponse}.
+ * {@code bulkScalarLoop} vs {@code bulkScorer} compares the branchy scalar
+ * code with {@link BulkComfortScorer} on random (unpredictable) readings; add
+ * {@code -Pvector-api} to benchmark its Vector API kernel instead of the
+ * branch-free loop. The {@code *Lookup} variants read the sub-scores from
+ * {@link com.fidenz.weather.util.LookupComfortScorer}'s interpolated tables.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.fidenz.weather.benchmark.ComfortScoreBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ComfortScoreBenchmark {
+
+    private static final int READINGS = 1024;
+
+    private final ComfortIndexCalculator calculator = new ComfortIndexCalculator(false);
+    private final ComfortIndexCalculator lookupCalculator = new ComfortIndexCalculator(true);
+
+    private double[] temps;
+    private double[] humidity;
+    private double[] wind;
+    private double[] scores;
+    private WeatherResponseDTO[] weather;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        temps = new double[READINGS];
+        humidity = new double[READINGS];
+        wind = new double[READINGS];
+        scores = new double[READINGS];
+        weather = new WeatherResponseDTO[READINGS];
+        for (int i = 0; i < READINGS; i++) {
+            temps[i] = random.nextDouble() * 60 - 20;
+            humidity[i] = random.nextDouble() * 100;
+            wind[i] = random.nextDouble() * 20;
+
+            WeatherResponseDTO dto = new WeatherResponseDTO();
+            dto.setTemperature(temps[i]);
+            dto.setHumidity(humidity[i]);
+            dto.setWindSpeed(wind[i]);
+            weather[i] = dto;
+        }
+    }
+
+    @Benchmark
+    public double scalar() {
+        int i = next++ & (READINGS - 1);
+        return calculator.score(temps[i], humidity[i], wind[i]);
+    }
+
+    @Benchmark
+    public double scalarLookup() {
+        int i = next++ & (READINGS - 1);
+        return lookupCalculator.score(temps[i], humidity[i], wind[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void bulkScalarLoop(Blackhole blackhole) {
+        for (int i = 0; i < READINGS; i++) {
+            scores[i] = calculator.score(temps[i], humidity[i], wind[i]);
+        }
+        blackhole.consume(scores);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void bulkScorer(Blackhole blackhole) {
+        BulkComfortScorer.scoreAll(ComfortModel.DEFAULT, temps, humidity, wind, scores);
+        blackhole.consume(scores);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void bulkLookup(Blackhole blackhole) {
+        lookupCalculator.scoreAll(temps, humidity, wind, scores);
+        blackhole.consume(scores);
+    }
+
+    @Benchmark
+    public ComfortIndexResponse dtoWrapper() {
+        return calculator.calculateComfortIndex(weather[next++ & (READINGS - 1)]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ComfortScoreBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
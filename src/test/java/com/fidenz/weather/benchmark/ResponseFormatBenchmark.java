@@ -0,0 +1,112 @@
+package com.fidenz.weather.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode and decode cost of the ranked city list as JSON, CBOR and Smile.
+ * Raw and gzipped payload sizes are printed once per fork from
+ * {@link #setUp()}: the all-cities JSON ranking is already served gzipped, so
+ * compare the compressed sizes before assuming a binary format saves bandwidth.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.fidenz.weather.benchmark.ResponseFormatBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    private static final String[] LEVELS = {"Very Comfortable", "Comfortable", "Moderate", "Uncomfortable"};
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"100"})
+    public int cities;
+
+    private List<WeatherResponseDTO> ranking;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper mapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+        writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, WeatherResponseDTO.class));
+        reader = mapper.readerFor(WeatherResponseDTO[].class);
+
+        Random random = new Random(42);
+        ranking = new ArrayList<>(cities);
+        for (int i = 0; i < cities; i++) {
+            double score = 100.0 - i * 100.0 / cities;
+            ranking.add(WeatherResponseDTO.builder()
+                    .cityId(String.valueOf(1_000_000 + random.nextInt(9_000_000)))
+                    .cityName("City " + i)
+                    .country("C" + (char) ('A' + random.nextInt(26)))
+                    .temperature(Math.round((random.nextDouble() * 40 - 5) * 100) / 100.0)
+                    .feelsLike(Math.round((random.nextDouble() * 40 - 5) * 100) / 100.0)
+                    .humidity((double) random.nextInt(100))
+                    .pressure((double) (990 + random.nextInt(40)))
+                    .windSpeed(Math.round(random.nextDouble() * 1500) / 100.0)
+                    .cloudiness(random.nextInt(100))
+                    .visibility(10_000)
+                    .weatherDescription("scattered clouds")
+                    .weatherIcon("03d")
+                    .comfortScore(Math.round(score * 100) / 100.0)
+                    .comfortLevel(LEVELS[Math.min(i * LEVELS.length / cities, LEVELS.length - 1)])
+                    .rank(i + 1)
+                    .cacheStatus("HIT")
+                    .timestamp("2024-01-15T10:30:00")
+                    .build());
+        }
+        encoded = writer.writeValueAsBytes(ranking);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(encoded);
+        }
+        System.out.printf("%n%s payload for %d cities: %d bytes, %d gzipped%n",
+                format, cities, encoded.length, compressed.size());
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return writer.writeValueAsBytes(ranking);
+    }
+
+    @Benchmark
+    public WeatherResponseDTO[] decode() throws Exception {
+        return reader.readValue(encoded);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ResponseFormatBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.fidenz.weather.client;
+
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncHttpWeatherProviderTest {
+
+    private StubWeatherServer server;
+    private AsyncHttpWeatherProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubWeatherServer(50);
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        provider = new AsyncHttpWeatherProvider(
+                new OpenWeatherMapEndpoint(server.baseUrl(), "test-key", "metric"),
+                objectMapper, 2000, 5000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.shutdown();
+        server.close();
+    }
+
+    @Test
+    void parsesUpstreamResponse() {
+        OpenWeatherMapResponseDTO weather = provider.fetchCurrentWeather("1248991").join();
+
+        assertThat(weather.getId()).isEqualTo(1248991L);
+        assertThat(weather.getMain().getTemp()).isEqualTo(22.5);
+        assertThat(weather.getSys().getCountry()).isEqualTo("LK");
+    }
+
+    @Test
+    void manyConcurrentRequestsShareAFewThreads() {
+        List<CompletableFuture<OpenWeatherMapResponseDTO>> calls = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            calls.add(provider.fetchCurrentWeather(String.valueOf(i)));
+        }
+
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+        assertThat(server.requestCount()).isEqualTo(100);
+        assertThat(calls.get(99).join().getId()).isEqualTo(100L);
+    }
+
+    @Test
+    void nonOkStatusFailsTheFuture() {
+        assertThatThrownBy(() -> provider.fetchCurrentWeather("0").join())
+                .isInstanceOf(CompletionException.class)
+                .hasMessageContaining("HTTP 404");
+    }
+
+    @Test
+    void groupRequestReturnsKnownCitiesInOneCall() {
+        List<OpenWeatherMapResponseDTO> weather = provider
+                .fetchCurrentWeatherGroup(List.of("1248991", "0", "1850147"))
+                .join();
+
+        assertThat(weather).extracting(OpenWeatherMapResponseDTO::getId).containsExactly(1248991L, 1850147L);
+        assertThat(server.requestCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,53 @@
+package com.fidenz.weather.client;
+
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlockingWeatherProviderTest {
+
+    private StubWeatherServer server;
+    private BlockingWeatherProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new StubWeatherServer(0);
+        provider = new BlockingWeatherProvider(new RestTemplate(),
+                new OpenWeatherMapEndpoint(server.baseUrl(), "test-key", "metric"), 2, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.shutdown();
+        server.close();
+    }
+
+    @Test
+    void groupRequestSplitsBackIntoCities() {
+        List<String> cityIds = IntStream.rangeClosed(1, 20).mapToObj(String::valueOf).toList();
+
+        List<OpenWeatherMapResponseDTO> weather = provider.fetchCurrentWeatherGroup(cityIds).join();
+
+        assertThat(weather).hasSize(20);
+        assertThat(weather.get(19).getId()).isEqualTo(20L);
+        assertThat(weather.get(0).getMain().getTemp()).isEqualTo(22.5);
+        assertThat(server.requestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void groupsLargerThanTheUpstreamLimitAreRejected() {
+        List<String> cityIds = IntStream.rangeClosed(1, 21).mapToObj(String::valueOf).toList();
+
+        assertThatThrownBy(() -> provider.fetchCurrentWeatherGroup(cityIds))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(server.requestCount()).isZero();
+    }
+}
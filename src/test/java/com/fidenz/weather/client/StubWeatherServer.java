@@ -0,0 +1,122 @@
+package com.fidenz.weather.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local stand-in for the OpenWeatherMap {@code /weather} and
+ * {@code /group} endpoints. Every city gets the same observation, returned
+ * after a fixed delay; city ID 0 is unknown.
+ */
+class StubWeatherServer implements AutoCloseable {
+
+    static final String THREAD_PREFIX = "stub-http-";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(new CustomizableThreadFactory(THREAD_PREFIX));
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final long latencyMs;
+
+    StubWeatherServer(long latencyMs) throws IOException {
+        this(0, latencyMs);
+    }
+
+    StubWeatherServer(int port, long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.server.createContext("/data/2.5/weather", this::handleWeather);
+        this.server.createContext("/data/2.5/group", this::handleGroup);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/data/2.5";
+    }
+
+    int requestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleWeather(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        String cityId = idParameter(exchange);
+        simulateLatency();
+
+        if (cityId.equals("0")) {
+            respond(exchange, 404, "{\"cod\":\"404\",\"message\":\"city not found\"}");
+            return;
+        }
+        respond(exchange, 200, observation(cityId));
+    }
+
+    private void handleGroup(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        String[] cityIds = idParameter(exchange).split(",");
+        simulateLatency();
+
+        if (cityIds.length > OpenWeatherMapEndpoint.MAX_GROUP_SIZE) {
+            respond(exchange, 400, "{\"cod\":\"400\",\"message\":\"too many ids\"}");
+            return;
+        }
+        StringJoiner list = new StringJoiner(",", "[", "]");
+        int count = 0;
+        for (String cityId : cityIds) {
+            if (!cityId.equals("0")) {
+                list.add(observation(cityId));
+                count++;
+            }
+        }
+        respond(exchange, 200, "{\"cnt\":" + count + ",\"list\":" + list + "}");
+    }
+
+    private static String idParameter(HttpExchange exchange) {
+        return exchange.getRequestURI().getQuery().replaceAll("^id=([^&]+).*", "$1");
+    }
+
+    private void simulateLatency() {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static String observation(String cityId) {
+        return "{\"coord\":{\"lon\":79.86,\"lat\":6.93},"
+                + "\"weather\":[{\"id\":801,\"main\":\"Clouds\",\"description\":\"few clouds\",\"icon\":\"02d\"}],"
+                + "\"base\":\"stations\","
+                + "\"main\":{\"temp\":22.5,\"feels_like\":23.1,\"pressure\":1012,\"humidity\":55},"
+                + "\"wind\":{\"speed\":2.1,\"deg\":200},\"clouds\":{\"all\":20},\"visibility\":10000,"
+                + "\"dt\":1701964800,\"sys\":{\"country\":\"LK\"},\"timezone\":19800,"
+                + "\"id\":" + cityId + ",\"name\":\"City " + cityId + "\",\"cod\":200}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.fidenz.weather.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load harness against a running instance: each simulated client
+ * sends a request, waits for the response and immediately sends the next one.
+ * Not a unit test. Every request is {@code GET /city/{id}?forceRefresh=true},
+ * which evicts the city and blocks on the upstream provider, so request
+ * threads really wait on I/O. Upstream is a {@link StubWeatherServer} started
+ * here, answering after a fixed delay. Start the application once per
+ * threading mode, pointed at the stub, and compare:
+ *
+ * <pre>
+ * ARGS="--weather.api.base-url=http://127.0.0.1:9099/data/2.5 --weather.provider.batch.enabled=false \
+ *     --weather.prewarm.enabled=false"
+ * # platform threads (Java 17 or 21)
+ * USE_MOCK_DATA=false mvn spring-boot:run -Dspring-boot.run.arguments="$ARGS"
+ * # virtual threads (Java 21)
+ * USE_MOCK_DATA=false VIRTUAL_THREADS=true mvn -Pvirtual-threads spring-boot:run \
+ *     -Dspring-boot.run.arguments="$ARGS"
+ *
+ * LOAD_TEST_TOKEN=... mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.fidenz.weather.client.ThreadingLoadHarness \
+ *     -Dexec.args="http://localhost:8080 1000 30 9099 200"
+ * </pre>
+ *
+ * Arguments: base URL, concurrent clients (default 1000), duration in seconds
+ * (default 30), stub port (default 9099) and stub latency in milliseconds
+ * (default 200). {@code LOAD_TEST_TOKEN} must hold a bearer token for the
+ * authenticated endpoints. Clients rotate over the catalog from
+ * {@code /supported-cities}. Server-side thread counts come from the
+ * {@code threads} section of {@code /api/v1/weather/health}.
+ */
+public class ThreadingLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int stubPort = args.length > 3 ? Integer.parseInt(args[3]) : 9099;
+        long upstreamLatencyMs = args.length > 4 ? Long.parseLong(args[4]) : 200;
+        String token = System.getenv("LOAD_TEST_TOKEN");
+        if (token == null) {
+            System.err.println("Set LOAD_TEST_TOKEN to a bearer token for /api/v1/weather/city");
+            System.exit(1);
+        }
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<HttpRequest> requests = new ArrayList<>();
+        for (String cityId : catalogCityIds(httpClient, baseUrl)) {
+            requests.add(HttpRequest.newBuilder(
+                            URI.create(baseUrl + "/api/v1/weather/city/" + cityId + "?forceRefresh=true"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build());
+        }
+
+        try (StubWeatherServer upstream = new StubWeatherServer(stubPort, upstreamLatencyMs)) {
+            System.out.printf("Upstream stub at %s (%d ms per call)%n", upstream.baseUrl(), upstreamLatencyMs);
+            System.out.printf("Target %s/api/v1/weather/city/{%d cities}?forceRefresh=true with %d clients for %d s%n",
+                    baseUrl, requests.size(), clients, durationSeconds);
+            System.out.println("Server threads before: " + serverThreads(httpClient, baseUrl));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+            Stats stats = new Stats();
+            CountDownLatch finished = new CountDownLatch(clients);
+            for (int i = 0; i < clients; i++) {
+                new Client(httpClient, requests, new AtomicInteger(i), deadline, stats, finished).next();
+            }
+            finished.await(durationSeconds + 60L, TimeUnit.SECONDS);
+
+            long[] latencies = stats.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("Completed %d requests (%d errors) -> %.0f req/s, %d upstream calls%n",
+                    stats.ok.get(), stats.errors.get(), stats.ok.get() / (double) durationSeconds,
+                    upstream.requestCount());
+            System.out.printf("Latency p50 %d ms, p99 %d ms, max %d ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies.length == 0 ? 0 : latencies[latencies.length - 1]);
+            System.out.println("Server threads after: " + serverThreads(httpClient, baseUrl));
+        }
+    }
+
+    private static List<String> catalogCityIds(HttpClient httpClient, String baseUrl) throws Exception {
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/weather/supported-cities")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        List<String> cityIds = new ArrayList<>();
+        for (JsonNode city : new ObjectMapper().readTree(response.body())) {
+            cityIds.add(city.path("cityCode").asText());
+        }
+        if (cityIds.isEmpty()) {
+            throw new IllegalStateException("No cities in " + baseUrl + "/api/v1/weather/supported-cities");
+        }
+        return cityIds;
+    }
+
+    private static String serverThreads(HttpClient httpClient, String baseUrl) {
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/weather/health")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode threads = new ObjectMapper().readTree(response.body()).path("threads");
+            return threads.isMissingNode() ? "n/a" : threads.toString();
+        } catch (Exception e) {
+            return "unavailable (" + e.getMessage() + ")";
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static class Stats {
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * One simulated client. Requests are chained from the completion callback,
+     * so a thousand clients need no client-side threads of their own.
+     */
+    private record Client(HttpClient httpClient, List<HttpRequest> requests, AtomicInteger sent, long deadline,
+                          Stats stats, CountDownLatch finished) {
+
+        void next() {
+            if (System.nanoTime() >= deadline) {
+                finished.countDown();
+                return;
+            }
+            long start = System.nanoTime();
+            HttpRequest request = requests.get(sent.getAndIncrement() % requests.size());
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure == null && response.statusCode() == 200) {
+                            stats.ok.incrementAndGet();
+                            stats.latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        } else {
+                            stats.errors.incrementAndGet();
+                        }
+                        next();
+                    });
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.fidenz.weather.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compares the blocking and async providers against a local stub server with a
+ * fixed upstream latency. Not a unit test; run it directly:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.fidenz.weather.client.WeatherProviderBenchmark \
+ *     -Dexec.args="500 100"
+ * </pre>
+ *
+ * Arguments: number of concurrent requests (default 500) and stub latency in ms
+ * (default 100).
+ */
+public class WeatherProviderBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        long latencyMs = args.length > 1 ? Long.parseLong(args[1]) : 100;
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        try (StubWeatherServer server = new StubWeatherServer(latencyMs)) {
+            OpenWeatherMapEndpoint endpoint = new OpenWeatherMapEndpoint(server.baseUrl(), "bench", "metric");
+
+            CloseableHttpClient httpClient = HttpClients.custom()
+                    .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                            .setMaxConnTotal(requests)
+                            .setMaxConnPerRoute(requests)
+                            .build())
+                    .build();
+            RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+            BlockingWeatherProvider blocking = new BlockingWeatherProvider(restTemplate, endpoint, 16, false);
+            AsyncHttpWeatherProvider async = new AsyncHttpWeatherProvider(endpoint, objectMapper, 2000, 30000, 4);
+
+            // Warm up connections and JIT
+            run(blocking, 50);
+            run(async, 50);
+
+            report("blocking (16 I/O threads)", blocking, requests, latencyMs);
+            report("async (4 callback threads)", async, requests, latencyMs);
+
+            blocking.shutdown();
+            async.shutdown();
+            httpClient.close();
+        }
+    }
+
+    private static void report(String name, WeatherProvider provider, int requests, long latencyMs)
+            throws InterruptedException {
+        ThreadSampler sampler = new ThreadSampler();
+        sampler.start();
+
+        long start = System.nanoTime();
+        run(provider, requests);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        sampler.interrupt();
+        sampler.join();
+        System.out.printf("%-28s %d requests @ %d ms upstream: %6d ms wall, %7.0f req/s, peak client threads %d%n",
+                name, requests, latencyMs, elapsedMs, requests * 1000.0 / Math.max(1, elapsedMs),
+                sampler.peak);
+    }
+
+    private static void run(WeatherProvider provider, int requests) {
+        List<CompletableFuture<?>> calls = new ArrayList<>(requests);
+        for (int i = 1; i <= requests; i++) {
+            calls.add(provider.fetchCurrentWeather(String.valueOf(i)));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Polls the live thread count, excluding the stub server's own threads, so
+     * the figure reflects only what the client side needed.
+     */
+    private static class ThreadSampler extends Thread {
+        private volatile int peak;
+
+        ThreadSampler() {
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                int live = (int) Thread.getAllStackTraces().keySet().stream()
+                        .filter(t -> !t.getName().startsWith(StubWeatherServer.THREAD_PREFIX))
+                        .count();
+                peak = Math.max(peak, live);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
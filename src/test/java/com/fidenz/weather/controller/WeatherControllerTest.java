@@ -0,0 +1,263 @@
+package com.fidenz.weather.controller;
+
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.service.CacheValidator;
+import com.fidenz.weather.service.EncodedRanking;
+import com.fidenz.weather.service.FrameSink;
+import com.fidenz.weather.service.RankingPage;
+import com.fidenz.weather.service.RankingSubscription;
+import com.fidenz.weather.service.WeatherService;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class WeatherControllerTest {
+
+    private static final CacheValidator RANKING = CacheValidator.of("r7", 1_700_000_000_000L);
+    private static final CacheValidator CITY = CacheValidator.of("c3.0.HIT", 1_700_000_000_000L);
+
+    private WeatherService weatherService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        weatherService = mock(WeatherService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new WeatherController(weatherService, new ContentNegotiationManager()))
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new MappingJackson2HttpMessageConverter(),
+                        new MappingJackson2CborHttpMessageConverter(),
+                        new MappingJackson2SmileHttpMessageConverter())
+                .build();
+    }
+
+    @Test
+    void unchangedRankingIsAnsweredWith304BeforeAnyServiceWork() throws Exception {
+        when(weatherService.getRankingValidator()).thenReturn(RANKING);
+
+        mockMvc.perform(get("/api/v1/weather/cities").header(HttpHeaders.IF_NONE_MATCH, RANKING.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, RANKING.etag()))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(weatherService, never()).getEncodedRanking(anyBoolean());
+        verify(weatherService, never()).getRankedCities(any(), anyBoolean());
+    }
+
+    @Test
+    void encodedRankingCarriesPerCodingValidators() throws Exception {
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        when(weatherService.getRankingValidator()).thenReturn(RANKING);
+        when(weatherService.getEncodedRanking(false)).thenReturn(new EncodedRanking(7, RANKING, 0, json, json));
+
+        mockMvc.perform(get("/api/v1/weather/cities"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, RANKING.etag()))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().bytes(json));
+
+        String gzipTag = RANKING.variant("gzip").etag();
+        mockMvc.perform(get("/api/v1/weather/cities").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, RANKING.etag()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, gzipTag))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, "Accept, Accept-Encoding"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/api/v1/weather/cities").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, "Accept, Accept-Encoding"));
+    }
+
+    @Test
+    void gzipIsOnlySentWhenAcceptEncodingAllowsIt() throws Exception {
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        when(weatherService.getRankingValidator()).thenReturn(RANKING);
+        when(weatherService.getEncodedRanking(false)).thenReturn(new EncodedRanking(7, RANKING, 0, json, json));
+
+        for (String accepted : List.of("GZIP", "x-gzip", "deflate, gzip;q=0.5", "*", "br;q=1, *;q=0.1")) {
+            mockMvc.perform(get("/api/v1/weather/cities").header(HttpHeaders.ACCEPT_ENCODING, accepted))
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        }
+        for (String refused : List.of("gzip;q=0", "gzip; q=0.0, *", "*;q=0", "deflate, br", "gzipped",
+                "gzip;q=abc")) {
+            mockMvc.perform(get("/api/v1/weather/cities").header(HttpHeaders.ACCEPT_ENCODING, refused))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        }
+    }
+
+    @Test
+    void filteredRankingIsTaggedWithTheSnapshotItWasReadFrom() throws Exception {
+        CacheValidator newer = CacheValidator.of("r8", 1_700_000_001_000L);
+        when(weatherService.getRankingValidator()).thenReturn(RANKING);
+        when(weatherService.getRankedCities(any(), eq(false))).thenReturn(new RankingPage(List.of(), 0, newer));
+
+        mockMvc.perform(get("/api/v1/weather/cities").param("limit", "5")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, newer.etag()))
+                .andExpect(header().string("X-Total-Count", "0"));
+    }
+
+    @Test
+    void cityIsRevalidatedWithIfNoneMatchOrIfModifiedSince() throws Exception {
+        when(weatherService.getCityValidator("1248991")).thenReturn(CITY);
+
+        mockMvc.perform(get("/api/v1/weather/city/1248991").header(HttpHeaders.IF_NONE_MATCH, "W/" + CITY.etag()))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/v1/weather/city/1248991")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Tue, 14 Nov 2023 22:13:20 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(weatherService, never()).getCityWeather(anyString(), anyBoolean());
+    }
+
+    @Test
+    void cityResponseIsTaggedOnlyWhenItsEntryDidNotChangeDuringTheRead() throws Exception {
+        WeatherResponseDTO weather = WeatherResponseDTO.builder().cityId("1248991").build();
+        when(weatherService.getCityWeather("1248991", false)).thenReturn(weather);
+        when(weatherService.getCityValidator("1248991")).thenReturn(CITY);
+
+        mockMvc.perform(get("/api/v1/weather/city/1248991").header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, CITY.etag()));
+
+        // First read is a cache miss: no validator before the load
+        when(weatherService.getCityValidator("1248991")).thenReturn(null, CITY);
+        mockMvc.perform(get("/api/v1/weather/city/1248991"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void binaryFormatsAreNegotiatedAndTaggedPerMediaType() throws Exception {
+        WeatherResponseDTO weather = WeatherResponseDTO.builder().cityId("1248991").rank(1).build();
+        when(weatherService.getRankingValidator()).thenReturn(RANKING);
+        when(weatherService.getRankedCities(any(), eq(false))).thenReturn(new RankingPage(List.of(weather), 1, RANKING));
+
+        String cborTag = RANKING.variant("cbor").etag();
+        MvcResult result = mockMvc.perform(get("/api/v1/weather/cities")
+                        .header(HttpHeaders.ACCEPT, "application/cbor")
+                        .header(HttpHeaders.IF_NONE_MATCH, RANKING.etag()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, cborTag))
+                .andReturn();
+        WeatherResponseDTO[] decoded = new CBORMapper()
+                .readValue(result.getResponse().getContentAsByteArray(), WeatherResponseDTO[].class);
+        assertThat(decoded).extracting(WeatherResponseDTO::getCityId).containsExactly("1248991");
+        verify(weatherService, never()).getEncodedRanking(anyBoolean());
+
+        mockMvc.perform(get("/api/v1/weather/cities").header(HttpHeaders.ACCEPT, "application/cbor")
+                        .header(HttpHeaders.IF_NONE_MATCH, cborTag))
+                .andExpect(status().isNotModified());
+
+        // JSON preferred by quality: served from the pre-encoded bytes
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        when(weatherService.getEncodedRanking(false)).thenReturn(new EncodedRanking(7, RANKING, 0, json, json));
+        mockMvc.perform(get("/api/v1/weather/cities")
+                        .header(HttpHeaders.ACCEPT, "application/x-jackson-smile;q=0.5, application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, RANKING.etag()))
+                .andExpect(content().bytes(json));
+    }
+
+    @Test
+    void cityIsAvailableAsSmile() throws Exception {
+        WeatherResponseDTO weather = WeatherResponseDTO.builder().cityId("1248991").comfortScore(71.5).build();
+        when(weatherService.getCityWeather("1248991", false)).thenReturn(weather);
+        when(weatherService.getCityValidator("1248991")).thenReturn(CITY);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/weather/city/1248991")
+                        .header(HttpHeaders.ACCEPT, "application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.ETAG, CITY.variant("x-jackson-smile").etag()))
+                .andReturn();
+        WeatherResponseDTO decoded = new SmileMapper()
+                .readValue(result.getResponse().getContentAsByteArray(), WeatherResponseDTO.class);
+        assertThat(decoded.getComfortScore()).isEqualTo(71.5);
+    }
+
+    @Test
+    void batchLookupAcceptsAnIdListOrAJsonArray() throws Exception {
+        WeatherResponseDTO colombo = WeatherResponseDTO.builder().cityId("1248991").build();
+        WeatherResponseDTO tokyo = WeatherResponseDTO.builder().cityId("1850147").build();
+        when(weatherService.getCitiesWeather(List.of("1248991", "1850147"), false)).thenReturn(List.of(colombo, tokyo));
+
+        mockMvc.perform(get("/api/v1/weather/cities/batch").param("ids", "1248991,1850147"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].city_id").value("1850147"));
+        mockMvc.perform(post("/api/v1/weather/cities/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1248991\", \"1850147\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].city_id").value("1248991"));
+
+        verify(weatherService, times(2)).getCitiesWeather(List.of("1248991", "1850147"), false);
+        verify(weatherService, never()).getCityWeather(anyString(), anyBoolean());
+    }
+
+    @Test
+    void unsupportedFormatsAreAnsweredWith406() throws Exception {
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        when(weatherService.getRankingValidator()).thenReturn(RANKING);
+        when(weatherService.getEncodedRanking(false)).thenReturn(new EncodedRanking(7, RANKING, 0, json, json));
+
+        mockMvc.perform(get("/api/v1/weather/cities").header(HttpHeaders.ACCEPT, "application/xml"))
+                .andExpect(status().isNotAcceptable());
+        mockMvc.perform(get("/api/v1/weather/cities")
+                        .header(HttpHeaders.ACCEPT, "application/xml, application/json;q=0"))
+                .andExpect(status().isNotAcceptable());
+        mockMvc.perform(get("/api/v1/weather/city/1248991").header(HttpHeaders.ACCEPT, "text/csv"))
+                .andExpect(status().isNotAcceptable());
+
+        verify(weatherService, never()).getEncodedRanking(anyBoolean());
+        verify(weatherService, never()).getCityWeather(anyString(), anyBoolean());
+    }
+
+    @Test
+    void streamWritesServiceFramesAsIsAndClosesTheSubscriptionWithTheResponse() throws Exception {
+        RankingSubscription subscription = mock(RankingSubscription.class);
+        ArgumentCaptor<FrameSink> sink = ArgumentCaptor.forClass(FrameSink.class);
+        ArgumentCaptor<Runnable> onClose = ArgumentCaptor.forClass(Runnable.class);
+        when(weatherService.streamRankingChanges(sink.capture(), onClose.capture(), eq("6"))).thenReturn(subscription);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/weather/stream").header("Last-Event-ID", "6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] frame = "id: 7\nevent: ranking-delta\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8);
+        sink.getValue().write(frame);
+        onClose.getValue().run();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE))
+                .andExpect(content().bytes(frame));
+        verify(subscription).close();
+    }
+}
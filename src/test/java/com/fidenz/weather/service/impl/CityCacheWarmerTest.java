@@ -0,0 +1,92 @@
+package com.fidenz.weather.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CityCacheWarmerTest {
+
+    @TempDir
+    Path dir;
+
+    private Path catalogFile;
+    private CityRegistry registry;
+    private CityWeatherLoader loader;
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private CityCacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        catalogFile = dir.resolve("cities.json");
+        writeCatalog("1248991", "1850147");
+        registry = new CityRegistry(new ObjectMapper(), new FileSystemResource(catalogFile));
+        registry.load();
+
+        loader = mock(CityWeatherLoader.class);
+        when(loader.getGroupSize()).thenReturn(1);
+        when(loader.getMaximumSize()).thenReturn(100L);
+        when(loader.refreshGroup(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+        warmer = new CityCacheWarmer(loader, registry, taskScheduler, true, 240, 0, 60_000);
+    }
+
+    @Test
+    void groupsAreRebuiltFromTheReloadedCatalog() throws Exception {
+        warmer.warmUp();
+        assertThat(scheduled).hasSize(2);
+
+        writeCatalog("1248991", "2643743");
+        registry.reload();
+
+        // The first old group due notices the reload and schedules the new groups
+        runNext();
+        assertThat(scheduled).hasSize(3);
+        // The other old group stops
+        runNext();
+        assertThat(scheduled).hasSize(2);
+        runNext();
+        runNext();
+
+        verify(loader).refreshGroup(List.of("1248991"));
+        verify(loader).refreshGroup(List.of("2643743"));
+        verify(loader, never()).refreshGroup(List.of("1850147"));
+        // Each refreshed group is scheduled again
+        assertThat(scheduled).hasSize(2);
+    }
+
+    private void runNext() {
+        scheduled.remove(0).run();
+    }
+
+    private void writeCatalog(String... codes) throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (String code : codes) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"CityCode\":\"").append(code)
+                    .append("\",\"CityName\":\"City ").append(code)
+                    .append("\",\"Temp\":\"20.0\",\"Status\":\"Clear\"}");
+        }
+        Files.writeString(catalogFile, json.append(']').toString());
+    }
+}
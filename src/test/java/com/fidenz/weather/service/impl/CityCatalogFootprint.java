@@ -0,0 +1,111 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.CityDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Rough retained-heap comparison between a {@code List<CityDTO>} and the
+ * columnar {@link CityCatalog} for a synthetic catalog. {@link CityRegistryTest}
+ * checks a small catalog on every build; run it directly with a fixed heap,
+ * e.g. {@code -Xmx1g}, for the full-size numbers. It exits non-zero when the
+ * catalog does not retain less than half of the list:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.fidenz.weather.service.impl.CityCatalogFootprint \
+ *     -Dexec.args="200000"
+ * </pre>
+ *
+ * Names are drawn from a pool of 50k so the catalog has realistic repeats.
+ */
+public class CityCatalogFootprint {
+
+    private static final String[] STATUSES = {"Clear", "Clouds", "Rain", "Mist", "Snow", "Drizzle"};
+
+    /**
+     * Retained bytes of each representation. {@code catalogBytes} excludes the
+     * pre-serialized supported-cities JSON the registry also keeps.
+     */
+    record Footprint(int cities, long listBytes, long catalogBytes, long jsonBytes) {
+
+        boolean catalogIsUnderHalfOfList() {
+            return catalogBytes * 2 < listBytes;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cities = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Footprint footprint = measure(cities);
+
+        System.out.printf("List<CityDTO>:  %6.1f MB (%3d bytes/city)%n",
+                footprint.listBytes() / 1e6, footprint.listBytes() / cities);
+        System.out.printf("CityCatalog:    %6.1f MB (%3d bytes/city), plus %.1f MB of pre-serialized"
+                        + " supported-cities JSON%n",
+                footprint.catalogBytes() / 1e6, footprint.catalogBytes() / cities, footprint.jsonBytes() / 1e6);
+        if (!footprint.catalogIsUnderHalfOfList()) {
+            System.err.println("CityCatalog does not retain less than half of List<CityDTO>");
+            System.exit(1);
+        }
+    }
+
+    static Footprint measure(int cities) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Path file = Files.createTempFile("cities", ".json");
+        try {
+            writeCatalog(objectMapper, file, cities);
+
+            long before = usedHeap();
+            List<CityDTO> list = objectMapper.readValue(file.toFile(), new TypeReference<List<CityDTO>>() {});
+            long listBytes = usedHeap() - before;
+
+            before = usedHeap();
+            CityRegistry registry = new CityRegistry(objectMapper, new FileSystemResource(file));
+            registry.load();
+            long registryBytes = usedHeap() - before;
+
+            long jsonBytes = registry.getSupportedCitiesJson().length;
+            // Keep both alive until after measurement
+            if (list.size() != registry.size()) {
+                throw new IllegalStateException("Catalog lost cities: " + list.size() + " vs " + registry.size());
+            }
+            return new Footprint(cities, listBytes, registryBytes - jsonBytes, jsonBytes);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void writeCatalog(ObjectMapper objectMapper, Path file, int cities) throws Exception {
+        Random random = new Random(42);
+        try (OutputStream out = Files.newOutputStream(file);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (int i = 0; i < cities; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("CityCode", String.valueOf(1_000_000 + i * 7L));
+                generator.writeStringField("CityName", "City-" + random.nextInt(50_000));
+                generator.writeStringField("Temp", String.valueOf(Math.round((random.nextDouble() * 60 - 20) * 10) / 10.0));
+                generator.writeStringField("Status", STATUSES[random.nextInt(STATUSES.length)]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
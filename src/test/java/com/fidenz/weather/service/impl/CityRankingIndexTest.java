@@ -0,0 +1,156 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.service.RankingPage;
+import com.fidenz.weather.service.RankingQuery;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CityRankingIndexTest {
+
+    private CityRankingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        CityRegistry cityRegistry = new CityRegistry(new ObjectMapper(), new ClassPathResource("cities.json"));
+        cityRegistry.load();
+        index = new CityRankingIndex(cityRegistry);
+    }
+
+    @Test
+    void ranksByScoreDescendingAndReordersOnUpdate() {
+        index.update("1248991", weather("1248991", 40.0));
+        index.update("1850147", weather("1850147", 70.0));
+        index.update("2644210", weather("2644210", 55.0));
+
+        assertThat(index.snapshot().cities())
+                .extracting(WeatherResponseDTO::getCityId)
+                .containsExactly("1850147", "2644210", "1248991");
+
+        index.update("1248991", weather("1248991", 90.0));
+
+        RankingSnapshot snapshot = index.snapshot();
+        assertThat(snapshot.cities())
+                .extracting(WeatherResponseDTO::getCityId)
+                .containsExactly("1248991", "1850147", "2644210");
+        assertThat(snapshot.cities())
+                .extracting(WeatherResponseDTO::getRank)
+                .containsExactly(1, 2, 3);
+        assertThat(index.rankOf("2644210")).isEqualTo(3);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void snapshotIsReusedUntilTheIndexChanges() {
+        index.update("1248991", weather("1248991", 40.0));
+
+        RankingSnapshot first = index.snapshot();
+        assertThat(index.snapshot()).isSameAs(first);
+
+        index.update("1850147", weather("1850147", 70.0));
+        RankingSnapshot second = index.snapshot();
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.version()).isGreaterThan(first.version());
+        assertThat(first.cities()).hasSize(1);
+    }
+
+    @Test
+    void snapshotDoesNotMutateOrExposeSourceDtos() {
+        WeatherResponseDTO source = weather("1248991", 40.0);
+        index.update("1248991", source);
+
+        RankingSnapshot snapshot = index.snapshot();
+        assertThat(source.getRank()).isNull();
+        assertThatThrownBy(() -> snapshot.cities().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void rankingKeepsTheCacheStatusOfEachCity() {
+        index.update("1248991", withStatus(weather("1248991", 40.0), "MISS"));
+        index.update("1850147", withStatus(weather("1850147", 70.0), "REFRESHING"));
+        index.update("2644210", withStatus(weather("2644210", 55.0), "STALE"));
+        index.update("2988507", withStatus(weather("2988507", 50.0), "FALLBACK"));
+
+        assertThat(index.snapshot().cities())
+                .extracting(WeatherResponseDTO::getCacheStatus)
+                .containsExactly("REFRESHING", "STALE", "FALLBACK", "HIT");
+    }
+
+    @Test
+    void topNAndRemove() {
+        index.update("1248991", weather("1248991", 40.0));
+        index.update("1850147", weather("1850147", 70.0));
+        index.update("2644210", weather("2644210", 55.0));
+
+        assertThat(index.topN(2))
+                .extracting(WeatherResponseDTO::getCityId)
+                .containsExactly("1850147", "2644210");
+
+        index.remove("1850147");
+        assertThat(index.topN(2))
+                .extracting(WeatherResponseDTO::getCityId)
+                .containsExactly("2644210", "1248991");
+        assertThat(index.rankOf("1850147")).isNull();
+    }
+
+    @Test
+    void countsTheCatalogCitiesItIsMissing() {
+        assertThat(index.missingCount()).isEqualTo(10);
+
+        index.update("1248991", weather("1248991", 40.0));
+        index.update("1248991", weather("1248991", 45.0));
+        assertThat(index.missingCount()).isEqualTo(9);
+
+        index.remove("1248991");
+        assertThat(index.missingCount()).isEqualTo(10);
+        assertThat(index.isComplete()).isFalse();
+    }
+
+    @Test
+    void queryFiltersAndPagesAgainstTheRanking() {
+        index.update("1248991", weather("1248991", 40.0, "LK"));
+        index.update("1850147", weather("1850147", 70.0, "JP"));
+        index.update("2644210", weather("2644210", 55.0, "GB"));
+        index.update("2643743", weather("2643743", 65.0, "GB"));
+
+        RankingPage aboveFifty = index.snapshot().query(new RankingQuery(2, 1, null, 50.0, null));
+        assertThat(aboveFifty.totalMatches()).isEqualTo(3);
+        assertThat(aboveFifty.cities())
+                .extracting(WeatherResponseDTO::getCityId)
+                .containsExactly("2643743", "2644210");
+
+        RankingPage british = index.snapshot().query(new RankingQuery(null, 0, "gb", null, null));
+        assertThat(british.totalMatches()).isEqualTo(2);
+        assertThat(british.cities())
+                .extracting(WeatherResponseDTO::getRank)
+                .containsExactly(2, 3);
+
+        RankingPage beyondEnd = index.snapshot().query(new RankingQuery(10, 10, null, null, null));
+        assertThat(beyondEnd.cities()).isEmpty();
+        assertThat(beyondEnd.totalMatches()).isEqualTo(4);
+    }
+
+    private static WeatherResponseDTO weather(String cityId, double score, String country) {
+        WeatherResponseDTO dto = weather(cityId, score);
+        dto.setCountry(country);
+        return dto;
+    }
+
+    private static WeatherResponseDTO weather(String cityId, double score) {
+        WeatherResponseDTO dto = new WeatherResponseDTO();
+        dto.setCityId(cityId);
+        dto.setComfortScore(score);
+        return dto;
+    }
+
+    private static WeatherResponseDTO withStatus(WeatherResponseDTO weather, String cacheStatus) {
+        weather.setCacheStatus(cacheStatus);
+        return weather;
+    }
+}
@@ -0,0 +1,125 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.CityDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CityRegistryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CityRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new CityRegistry(objectMapper, new ClassPathResource("cities.json"));
+        registry.load();
+    }
+
+    @Test
+    void indexesByCodeAndName() {
+        CityDTO fallback = new CityDTO("0", "Unknown", "25.0", "Clear");
+
+        assertThat(registry.findByCode("1248991", fallback).getCityName()).isEqualTo("Colombo");
+        assertThat(registry.findByCode("0", fallback)).isSameAs(fallback);
+        assertThat(registry.contains("1850147")).isTrue();
+        assertThat(registry.contains("0")).isFalse();
+        assertThat(registry.findByName("tOKYO")).extracting(CityDTO::getCityCode).containsExactly("1850147");
+        assertThat(registry.findByName("Atlantis")).isEmpty();
+    }
+
+    @Test
+    void viewsAreImmutable() {
+        assertThatThrownBy(() -> registry.getCities().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> registry.getSupportedCities().get(0).put("cityName", "x"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void preSerializedViewMatchesTheCatalog() throws Exception {
+        List<Map<String, Object>> parsed = objectMapper.readValue(registry.getSupportedCitiesJson(),
+                new TypeReference<List<Map<String, Object>>>() {});
+
+        assertThat(parsed).hasSize(registry.size());
+        assertThat(parsed).isEqualTo(registry.getSupportedCities());
+    }
+
+    @Test
+    void streamsEveryJsonFileInADirectory(@TempDir Path dir) throws Exception {
+        Files.writeString(dir.resolve("a.json"), """
+                [{"CityCode": "1", "CityName": "Springfield", "Temp": "12.5", "Status": "Clear", "Extra": {"x": 1}},
+                 {"CityCode": 2, "CityName": "Shelbyville", "Temp": 7, "Status": "Rain"}]
+                """);
+        Files.writeString(dir.resolve("b.json"), """
+                [{"CityCode": "3", "CityName": "springfield", "Temp": "n/a", "Status": "Clear"},
+                 {"CityCode": "1", "CityName": "Duplicate", "Temp": "0", "Status": "Clear"},
+                 {"CityCode": "not-a-number", "CityName": "Broken"}]
+                """);
+        Files.writeString(dir.resolve("ignored.txt"), "not json");
+
+        CityRegistry directoryRegistry = new CityRegistry(objectMapper, new FileSystemResource(dir));
+        directoryRegistry.load();
+
+        assertThat(directoryRegistry.size()).isEqualTo(3);
+        assertThat(directoryRegistry.findByCode("1", null).getCityName()).isEqualTo("Springfield");
+        assertThat(directoryRegistry.findByCode("2", null).getTemp()).isEqualTo("7");
+        assertThat(directoryRegistry.findByCode("3", null).getTemp()).isEqualTo("n/a");
+        assertThat(directoryRegistry.findByName("SPRINGFIELD"))
+                .extracting(CityDTO::getCityCode)
+                .containsExactly("1", "3");
+    }
+
+    @Test
+    void catalogRoundTripsTheSourceFile() throws Exception {
+        List<CityDTO> source;
+        try (InputStream in = new ClassPathResource("cities.json").getInputStream()) {
+            source = objectMapper.readValue(in, new TypeReference<List<CityDTO>>() {});
+        }
+
+        assertThat(registry.getCities()).isEqualTo(source);
+    }
+
+    @Test
+    void keepsCodesAndTemperaturesExactlyAsWritten(@TempDir Path dir) throws Exception {
+        Files.writeString(dir.resolve("cities.json"), """
+                [{"CityCode": "007", "CityName": "Bondville", "Temp": "22.40", "Status": "Clear"},
+                 {"CityCode": "8", "CityName": "Plainville", "Temp": "22.40", "Status": "Clear"},
+                 {"CityCode": "9", "CityName": "Nowhere", "Status": "Clear"}]
+                """);
+
+        CityRegistry directoryRegistry = new CityRegistry(objectMapper, new FileSystemResource(dir));
+        directoryRegistry.load();
+
+        assertThat(directoryRegistry.findByCode("007", null).getTemp()).isEqualTo("22.40");
+        assertThat(directoryRegistry.contains("7")).isFalse();
+        assertThat(directoryRegistry.findByCode("9", null).getTemp()).isNull();
+        assertThat(directoryRegistry.getSupportedCities())
+                .extracting(city -> city.get("cityCode"))
+                .containsExactly("007", "8", "9");
+        assertThat(directoryRegistry.findByCode("8", null).getTemp())
+                .isSameAs(directoryRegistry.findByCode("007", null).getTemp());
+    }
+
+    @Test
+    void catalogRetainsLessThanHalfOfTheEquivalentDtoList() throws Exception {
+        CityCatalogFootprint.Footprint footprint = CityCatalogFootprint.measure(50_000);
+
+        assertThat(footprint.catalogIsUnderHalfOfList())
+                .as("catalog %d bytes vs list %d bytes", footprint.catalogBytes(), footprint.listBytes())
+                .isTrue();
+    }
+}
@@ -0,0 +1,439 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.client.BlockingWeatherProvider;
+import com.fidenz.weather.client.OpenWeatherMapEndpoint;
+import com.fidenz.weather.dto.CityDTO;
+import com.fidenz.weather.dto.ComfortModelDTO;
+import com.fidenz.weather.dto.OpenWeatherMapGroupResponseDTO;
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.exception.ResourceNotFoundException;
+import com.fidenz.weather.service.CacheValidator;
+import com.fidenz.weather.service.EncodedRanking;
+import com.fidenz.weather.service.RankingQuery;
+import com.fidenz.weather.util.ComfortIndexCalculator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CityWeatherLoaderTest {
+
+    private RestTemplate restTemplate;
+    private BlockingWeatherProvider weatherProvider;
+    private CaffeineCacheManager cacheManager;
+    private CityWeatherLoader loader;
+    private CityRegistry cityRegistry;
+    private CityRankingIndex rankingIndex;
+    private ComfortModelRegistry comfortModelRegistry;
+    private CityFanOutExecutor fanOutExecutor;
+    private WeatherServiceImpl weatherService;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        when(restTemplate.getForObject(anyString(), eq(OpenWeatherMapResponseDTO.class)))
+                .thenAnswer(invocation -> upstreamResponse(invocation.getArgument(0)));
+        when(restTemplate.getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class)))
+                .thenAnswer(invocation -> groupResponse(invocation.getArgument(0)));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ComfortIndexCalculator calculator = new ComfortIndexCalculator(false);
+        cityRegistry = new CityRegistry(objectMapper, new ClassPathResource("cities.json"));
+        cityRegistry.load();
+        cacheManager = new CaffeineCacheManager();
+
+        rankingIndex = new CityRankingIndex(cityRegistry);
+        ApplicationEventPublisher eventPublisher = event -> {
+            if (event instanceof CityWeatherUpdatedEvent updated) {
+                rankingIndex.onCityWeatherUpdated(updated);
+            } else if (event instanceof CityWeatherEvictedEvent evicted) {
+                rankingIndex.onCityWeatherEvicted(evicted);
+            } else if (event instanceof ComfortModelChangedEvent changed) {
+                loader.onComfortModelChanged(changed);
+            }
+        };
+
+        OpenWeatherMapEndpoint endpoint = new OpenWeatherMapEndpoint("http://localhost", "test-key", "metric");
+        weatherProvider = new BlockingWeatherProvider(restTemplate, endpoint, 4, false);
+
+        MockWeatherDataset mockDataset = new MockWeatherDataset(objectMapper, cityRegistry,
+                new ClassPathResource("static/mock-weather-data.json"), false, 1000);
+        mockDataset.load();
+
+        loader = new CityWeatherLoader(weatherProvider, calculator, cacheManager,
+                cityRegistry, mockDataset, eventPublisher);
+        ReflectionTestUtils.setField(loader, "cacheDuration", 300L);
+        ReflectionTestUtils.setField(loader, "maximumSize", 100L);
+        ReflectionTestUtils.setField(loader, "useMockData", false);
+        ReflectionTestUtils.setField(loader, "groupSize", 4);
+        loader.init();
+
+        comfortModelRegistry = new ComfortModelRegistry(objectMapper, calculator, eventPublisher,
+                new ClassPathResource("comfort-model.json"));
+
+        fanOutExecutor = new CityFanOutExecutor(4, 5000, 15000);
+        RankingResponseCache responseCache = new RankingResponseCache(objectMapper);
+        weatherService = new WeatherServiceImpl(calculator, cacheManager, fanOutExecutor, loader,
+                cityRegistry, rankingIndex, responseCache,
+                new RankingStreamBroadcaster(rankingIndex, responseCache, objectMapper), comfortModelRegistry,
+                new PoolingHttpClientConnectionManager());
+        ReflectionTestUtils.setField(weatherService, "maxBatchIds", 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherProvider.shutdown();
+    }
+
+    @Test
+    void upstreamIsCalledOncePerCityAcrossSingleAndBatchPaths() {
+        ReflectionTestUtils.setField(loader, "missBatchingEnabled", true);
+        ReflectionTestUtils.setField(loader, "missBatchMaxWaitMs", 50L);
+        loader.init();
+
+        weatherService.getCityWeather("1248991", false);
+        weatherService.getCityWeather("1248991", false);
+        weatherService.getAllCitiesWeather(false);
+        weatherService.getAllCitiesWeather(false);
+
+        // The single miss is batched too, so every city arrives through group requests of up to four IDs
+        int uncached = cityRegistry.getCities().size() - 1;
+        int groups = 1 + (uncached + 3) / 4;
+        verify(restTemplate, never()).getForObject(anyString(), eq(OpenWeatherMapResponseDTO.class));
+        verify(restTemplate, times(groups)).getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class));
+        assertThat(loader.getGroupedCityCount()).isEqualTo(uncached + 1);
+        assertThat(weatherService.getAllCitiesWeather(false)).hasSize(uncached + 1);
+
+        // Two forced refreshes while the first is still waiting for its batch share one slot
+        CompletableFuture<WeatherResponseDTO> first = loader.refreshAsync("1248991");
+        CompletableFuture<WeatherResponseDTO> second = loader.refreshAsync("1248991");
+        assertThat(List.of(first.join(), second.join())).extracting(WeatherResponseDTO::getCityId)
+                .containsOnly("1248991");
+        verify(restTemplate, times(groups + 1)).getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class));
+        assertThat(loader.getCoalescedFetchCount()).isEqualTo(1);
+        loader.shutdown();
+    }
+
+    @Test
+    void anUnknownCityDoesNotFailTheCitiesBatchedWithIt() {
+        ReflectionTestUtils.setField(loader, "missBatchingEnabled", true);
+        ReflectionTestUtils.setField(loader, "missBatchMaxWaitMs", 50L);
+        loader.init();
+
+        CompletableFuture<WeatherResponseDTO> good = loader.getAsync("1248991");
+        CompletableFuture<WeatherResponseDTO> bad = loader.getAsync("abc");
+
+        assertThat(good.join().getCacheStatus()).isEqualTo("MISS");
+        assertThat(bad.join().getCacheStatus()).isEqualTo("FALLBACK");
+        verify(restTemplate).getForObject(contains("/group?id=1248991&"), eq(OpenWeatherMapGroupResponseDTO.class));
+
+        // The group path resolves each city on its own as well
+        List<WeatherResponseDTO> grouped = loader.getAllAsync(List.of("1850147", "xyz")).join();
+        assertThat(grouped).extracting(WeatherResponseDTO::getCacheStatus).containsExactly("MISS", "FALLBACK");
+        loader.shutdown();
+    }
+
+    @Test
+    void completeRankingIsServedWithoutReadingTheCache() {
+        weatherService.getAllCitiesWeather(false);
+        assertThat(rankingIndex.isComplete()).isTrue();
+        long requests = loader.stats().requestCount();
+
+        weatherService.getAllCitiesWeather(false);
+        weatherService.getTopCities(3);
+        weatherService.getCityRank("1248991");
+        assertThat(weatherService.getRankingValidator()).isNotNull();
+        assertThat(weatherService.getCityValidator("1248991")).isNotNull();
+
+        assertThat(loader.stats().requestCount()).isEqualTo(requests);
+
+        loader.evict("1248991");
+        assertThat(weatherService.getRankingValidator()).isNull();
+    }
+
+    @Test
+    void cacheIsSizedToHoldTheWholeCatalog() {
+        ReflectionTestUtils.setField(loader, "maximumSize", 2L);
+        loader.init();
+
+        assertThat(loader.getMaximumSize()).isEqualTo(cityRegistry.size());
+        assertThat(weatherService.getAllCitiesWeather(false)).hasSize(cityRegistry.size());
+    }
+
+    @Test
+    void fanOutTimingsAreReportedPerBatch() {
+        weatherService.getAllCitiesWeather(false);
+
+        assertThat(fanOutExecutor.getLastRunTimings().keySet())
+                .containsExactly("batch-001 (4 cities)", "batch-002 (4 cities)", "batch-003 (2 cities)");
+    }
+
+    @Test
+    void citiesMissingFromAGroupResponseFallBackToMockData() {
+        when(restTemplate.getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class)))
+                .thenReturn(new OpenWeatherMapGroupResponseDTO());
+
+        List<WeatherResponseDTO> weather = loader.getAllAsync(List.of("1248991", "1850147")).join();
+
+        assertThat(weather).extracting(WeatherResponseDTO::getCityName).containsExactly("Colombo", "Tokyo");
+        verify(restTemplate, never()).getForObject(anyString(), eq(OpenWeatherMapResponseDTO.class));
+    }
+
+    @Test
+    void multiCityLookupLoadsMissesInGroupRequestsAndKeepsRequestOrder() {
+        weatherService.getCityWeather("1850147", false);
+
+        List<WeatherResponseDTO> weather = weatherService.getCitiesWeather(
+                List.of("2644210", "1850147", "1248991", "2644210", "2988507"), false);
+
+        assertThat(weather).extracting(WeatherResponseDTO::getCityId)
+                .containsExactly("2644210", "1850147", "1248991", "2988507");
+        assertThat(weather.get(1).getCacheStatus()).isEqualTo("HIT");
+        verify(restTemplate, times(1)).getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class));
+        assertThat(loader.getGroupedCityCount()).isEqualTo(3);
+    }
+
+    @Test
+    void multiCityLookupRejectsUnknownCitiesBeforeLoadingAny() {
+        assertThatThrownBy(() -> weatherService.getCitiesWeather(List.of("1248991", "999"), false))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("999");
+        assertThatThrownBy(() -> weatherService.getCitiesWeather(List.of(), false))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(loader.validator("1248991")).isNull();
+    }
+
+    @Test
+    void multiCityLookupRejectsMoreIdsThanTheLimitBeforeLoadingAny() {
+        List<String> tooMany = cityRegistry.getCities().stream().map(CityDTO::getCityCode).limit(6).toList();
+
+        assertThatThrownBy(() -> weatherService.getCitiesWeather(tooMany, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("At most 5");
+        assertThat(tooMany).allMatch(cityId -> loader.validator(cityId) == null);
+        verify(restTemplate, never()).getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class));
+    }
+
+    @Test
+    void concurrentSingleCityMissesAreBatchedIntoOneGroupRequest() {
+        ReflectionTestUtils.setField(loader, "missBatchingEnabled", true);
+        ReflectionTestUtils.setField(loader, "missBatchMaxWaitMs", 50L);
+        loader.init();
+
+        List<CompletableFuture<WeatherResponseDTO>> misses = List.of(
+                loader.getAsync("1248991"), loader.getAsync("1850147"), loader.getAsync("2644210"));
+
+        assertThat(misses).extracting(CompletableFuture::join)
+                .extracting(WeatherResponseDTO::getCityId)
+                .containsExactly("1248991", "1850147", "2644210");
+        verify(restTemplate, times(1)).getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class));
+        verify(restTemplate, never()).getForObject(anyString(), eq(OpenWeatherMapResponseDTO.class));
+        assertThat(loader.getMissBatchStatistics()).containsKeys("batchSize", "waitMicros");
+        loader.shutdown();
+    }
+
+    @Test
+    void aCityEvictedWhileLoadingIsNotRanked() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(restTemplate.getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class)))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return groupResponse(invocation.getArgument(0));
+                });
+
+        CompletableFuture<List<WeatherResponseDTO>> loading = loader.getAllAsync(List.of("1248991", "1850147"));
+        loader.evict("1248991");
+        release.countDown();
+        loading.join();
+
+        assertThat(rankingIndex.contains("1248991")).isFalse();
+        assertThat(loader.validator("1248991")).isNull();
+        assertThat(rankingIndex.contains("1850147")).isTrue();
+    }
+
+    @Test
+    void groupRefreshReplacesEntriesThroughOneGroupRequest() {
+        List<String> cityIds = List.of("1248991", "1850147", "2644210");
+        loader.getAllAsync(cityIds).join();
+        CacheValidator before = weatherService.getCityValidator("1248991");
+
+        loader.refreshGroup(cityIds).join();
+
+        verify(restTemplate, times(2)).getForObject(contains("/group?"), eq(OpenWeatherMapGroupResponseDTO.class));
+        verify(restTemplate, never()).getForObject(anyString(), eq(OpenWeatherMapResponseDTO.class));
+        assertThat(weatherService.getCityValidator("1248991")).isNotEqualTo(before);
+        assertThat(loader.getCacheStatus("2644210").getCacheStatus()).isEqualTo("HIT");
+    }
+
+    @Test
+    void forceRefreshEvictsAndRefetches() {
+        weatherService.getCityWeather("1248991", false);
+        WeatherResponseDTO refreshed = weatherService.getCityWeather("1248991", true);
+
+        assertThat(refreshed.getCityId()).isEqualTo("1248991");
+        verify(restTemplate, times(2)).getForObject(contains("id=1248991&"), eq(OpenWeatherMapResponseDTO.class));
+    }
+
+    @Test
+    void mockLookupFailuresFallBackLikeUpstreamFailures() {
+        ReflectionTestUtils.setField(loader, "useMockData", true);
+
+        WeatherResponseDTO weather = weatherService.getCityWeather("abc", false);
+
+        assertThat(weather.getCacheStatus()).isEqualTo("FALLBACK");
+        assertThat(weather.getComfortScore()).isEqualTo(50.0);
+    }
+
+    @Test
+    void cacheIsRegisteredWithCacheManager() {
+        weatherService.getCityWeather("1248991", false);
+
+        assertThat(cacheManager.getCache(CityWeatherLoader.CACHE_NAME).get("1248991")).isNotNull();
+
+        weatherService.clearCacheForCity("1248991");
+        weatherService.getCityWeather("1248991", false);
+        verify(restTemplate, times(2)).getForObject(contains("id=1248991&"), eq(OpenWeatherMapResponseDTO.class));
+    }
+
+    @Test
+    void responsesAreDerivedFromTheCachedObservationOnEachRead() {
+        when(restTemplate.getForObject(contains("id=1850147&"), eq(OpenWeatherMapResponseDTO.class)))
+                .thenAnswer(invocation -> {
+                    OpenWeatherMapResponseDTO response = observation("1850147");
+                    response.getMain().setHumidity(null);
+                    OpenWeatherMapResponseDTO.Weather weather = new OpenWeatherMapResponseDTO.Weather();
+                    weather.setDescription("light rain");
+                    weather.setIcon("10d");
+                    response.setWeather(List.of(weather));
+                    return response;
+                });
+
+        WeatherResponseDTO first = loader.get("1850147");
+        WeatherResponseDTO second = loader.get("1850147");
+
+        assertThat(first.getCacheStatus()).isEqualTo("MISS");
+        assertThat(second.getCacheStatus()).isEqualTo("HIT");
+        assertThat(second).isNotSameAs(first);
+        assertThat(second).usingRecursiveComparison().ignoringFields("cacheStatus").isEqualTo(first);
+        assertThat(second.getWeatherIcon()).isEqualTo("https://openweathermap.org/img/wn/10d@2x.png");
+        assertThat(second.getWeatherDescription()).isEqualTo("light rain");
+        assertThat(second.getHumidity()).isNull();
+        assertThat(second.getCloudiness()).isNull();
+        assertThat(second.getCountry()).isEqualTo("N/A");
+        // 22 °C, humidity missing (neutral 50), 3.6 km/h: 40 + 15 + 30
+        assertThat(second.getComfortScore()).isEqualTo(85.0);
+    }
+
+    @Test
+    void changingTheComfortModelRescoresCachedCitiesWithoutRefetching() {
+        WeatherResponseDTO before = weatherService.getCityWeather("1248991", false);
+        assertThat(before.getComfortScore()).isEqualTo(100.0);
+
+        ComfortModelDTO definition = new ComfortModelDTO();
+        definition.setTemperature(new ComfortModelDTO.Band(10.0, 15.0, 18.0, 23.0, 10.0));
+        comfortModelRegistry.apply(definition);
+
+        WeatherResponseDTO after = weatherService.getCityWeather("1248991", false);
+        // 22 °C now sits on the falling ramp: 100 - (22 - 18) / 5 * 50 = 60
+        assertThat(after.getComfortScore()).isEqualTo(84.0);
+        assertThat(after.getCacheStatus()).isEqualTo("HIT");
+        assertThat(rankingIndex.snapshot().cities()).extracting(WeatherResponseDTO::getComfortScore).containsOnly(84.0);
+        assertThat(weatherService.getComfortModel().getVersion()).isEqualTo(1);
+        verify(restTemplate, times(1)).getForObject(contains("id=1248991&"), eq(OpenWeatherMapResponseDTO.class));
+    }
+
+    @Test
+    void encodedRankingIsReusedUntilTheRankingChanges() throws Exception {
+        EncodedRanking first = weatherService.getEncodedRanking(false);
+        EncodedRanking second = weatherService.getEncodedRanking(false);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.size()).isEqualTo(cityRegistry.size());
+        assertThat(first.json()).isEqualTo(new ObjectMapper().writeValueAsBytes(rankingIndex.snapshot().cities()));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(first.json());
+        }
+
+        weatherService.getCityWeather("1248991", true);
+        EncodedRanking refreshed = weatherService.getEncodedRanking(false);
+        assertThat(refreshed).isNotSameAs(first);
+        assertThat(refreshed.version()).isGreaterThan(first.version());
+    }
+
+    @Test
+    void validatorsChangeWithTheEntryAndTheComfortModelOnly() {
+        assertThat(weatherService.getCityValidator("1248991")).isNull();
+        assertThat(weatherService.getRankingValidator()).isNull();
+
+        weatherService.getCityWeather("1248991", false);
+        CacheValidator city = weatherService.getCityValidator("1248991");
+        assertThat(city).isNotNull();
+        assertThat(city.etag()).startsWith("\"").endsWith("\"");
+        assertThat(weatherService.getCityValidator("1248991")).isEqualTo(city);
+
+        weatherService.getAllCitiesWeather(false);
+        CacheValidator ranking = weatherService.getRankingValidator();
+        assertThat(ranking).isEqualTo(weatherService.getRankedCities(RankingQuery.ALL, false).validator());
+        assertThat(weatherService.getEncodedRanking(false).validator()).isEqualTo(ranking);
+        assertThat(weatherService.getCityValidator("1248991")).isEqualTo(city);
+
+        ComfortModelDTO definition = new ComfortModelDTO();
+        definition.setTemperature(new ComfortModelDTO.Band(10.0, 15.0, 18.0, 23.0, 10.0));
+        comfortModelRegistry.apply(definition);
+        assertThat(weatherService.getCityValidator("1248991")).isNotEqualTo(city);
+        assertThat(weatherService.getRankingValidator()).isNotEqualTo(ranking);
+
+        CacheValidator rescored = weatherService.getCityValidator("1248991");
+        weatherService.getCityWeather("1248991", true);
+        assertThat(weatherService.getCityValidator("1248991")).isNotEqualTo(rescored);
+    }
+
+    private static OpenWeatherMapGroupResponseDTO groupResponse(String url) {
+        String ids = url.replaceAll(".*[?&]id=([\\d,]+).*", "$1");
+        OpenWeatherMapGroupResponseDTO group = new OpenWeatherMapGroupResponseDTO();
+        group.setList(Arrays.stream(ids.split(",")).map(CityWeatherLoaderTest::observation).toList());
+        group.setCnt(group.getList().size());
+        return group;
+    }
+
+    private static OpenWeatherMapResponseDTO upstreamResponse(String url) {
+        return observation(url.replaceAll(".*id=(\\d+).*", "$1"));
+    }
+
+    private static OpenWeatherMapResponseDTO observation(String cityId) {
+        OpenWeatherMapResponseDTO response = new OpenWeatherMapResponseDTO();
+        response.setId(Long.parseLong(cityId));
+        response.setName("City " + cityId);
+
+        OpenWeatherMapResponseDTO.Main main = new OpenWeatherMapResponseDTO.Main();
+        main.setTemp(22.0);
+        main.setHumidity(50.0);
+        main.setPressure(1013.0);
+        response.setMain(main);
+
+        OpenWeatherMapResponseDTO.Wind wind = new OpenWeatherMapResponseDTO.Wind();
+        wind.setSpeed(1.0);
+        response.setWind(wind);
+        return response;
+    }
+}
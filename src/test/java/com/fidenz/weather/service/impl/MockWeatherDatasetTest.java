@@ -0,0 +1,79 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.OpenWeatherMapResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.InstanceOfAssertFactories.MAP;
+
+class MockWeatherDatasetTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CityRegistry cityRegistry;
+
+    @BeforeEach
+    void setUp() {
+        cityRegistry = new CityRegistry(objectMapper, new ClassPathResource("cities.json"));
+        cityRegistry.load();
+    }
+
+    @Test
+    void fileEntriesAreParsedOnceAndShared() {
+        MockWeatherDataset dataset = new MockWeatherDataset(objectMapper, cityRegistry,
+                new ClassPathResource("static/mock-weather-data.json"), false, 1000);
+        dataset.load();
+
+        OpenWeatherMapResponseDTO colombo = dataset.lookup("1248991");
+        assertThat(colombo.getName()).isEqualTo("Colombo");
+        assertThat(dataset.lookup("1248991")).isSameAs(colombo);
+    }
+
+    @Test
+    void missingCitiesGetAStableGeneratedEntry() {
+        MockWeatherDataset dataset = new MockWeatherDataset(objectMapper, cityRegistry,
+                new FileSystemResource("does-not-exist.json"), false, 1000);
+        dataset.load();
+
+        OpenWeatherMapResponseDTO generated = dataset.lookup("1248991");
+        assertThat(dataset.size()).isZero();
+        assertThat(generated.getName()).isEqualTo("Colombo");
+        assertThat(dataset.lookup("1248991")).isSameAs(generated);
+    }
+
+    @Test
+    void idsOutsideTheCatalogAreGeneratedPerCallAndNotKept() {
+        MockWeatherDataset dataset = new MockWeatherDataset(objectMapper, cityRegistry,
+                new FileSystemResource("does-not-exist.json"), false, 1000);
+        dataset.load();
+
+        OpenWeatherMapResponseDTO first = dataset.lookup("424242");
+        assertThat(first.getName()).isEqualTo("Unknown City");
+        assertThat(dataset.lookup("424242")).isNotSameAs(first);
+        assertThat(ReflectionTestUtils.getField(dataset, "generated")).asInstanceOf(MAP).isEmpty();
+    }
+
+    @Test
+    void reloadsWhenTheFileChanges(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("mock.json");
+        Files.writeString(file, "{\"1\": {\"id\": 1, \"name\": \"Before\"}}");
+        MockWeatherDataset dataset = new MockWeatherDataset(objectMapper, cityRegistry,
+                new FileSystemResource(file), true, 0);
+        dataset.load();
+        assertThat(dataset.lookup("1").getName()).isEqualTo("Before");
+
+        Files.writeString(file, "{\"1\": {\"id\": 1, \"name\": \"After\"}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        assertThat(dataset.lookup("1").getName()).isEqualTo("After");
+    }
+}
@@ -0,0 +1,218 @@
+package com.fidenz.weather.service.impl;
+
+import com.fidenz.weather.dto.RankingDeltaDTO;
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import com.fidenz.weather.service.RankingSubscription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RankingStreamBroadcasterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CityRankingIndex index;
+    private RankingStreamBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        CityRegistry cityRegistry = new CityRegistry(objectMapper, new ClassPathResource("cities.json"));
+        cityRegistry.load();
+        index = new CityRankingIndex(cityRegistry);
+
+        broadcaster = new RankingStreamBroadcaster(index, new RankingResponseCache(objectMapper), objectMapper);
+        ReflectionTestUtils.setField(broadcaster, "coalesceMillis", 20L);
+        ReflectionTestUtils.setField(broadcaster, "clientBuffer", 2);
+        ReflectionTestUtils.setField(broadcaster, "writerThreads", 2);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 3);
+        broadcaster.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void diffListsRefreshedCitiesInFullAndMovedCitiesByRankOnly() {
+        update("1248991", 40.0, "t1");
+        update("1850147", 70.0, "t1");
+        update("2644210", 55.0, "t1");
+        RankingSnapshot before = index.snapshot();
+
+        update("1248991", 90.0, "t2");
+        index.remove("2644210");
+        RankingDeltaDTO delta = RankingStreamBroadcaster.diff(before, index.snapshot());
+
+        assertThat(delta.getTotal()).isEqualTo(2);
+        assertThat(delta.getRemoved()).containsExactly("2644210");
+        assertThat(delta.getChanged()).containsExactly(
+                RankingDeltaDTO.CityChange.builder().cityId("1248991").rank(1).comfortScore(90.0)
+                        .cacheStatus("HIT").timestamp("t2").build(),
+                RankingDeltaDTO.CityChange.builder().cityId("1850147").rank(2).build());
+    }
+
+    @Test
+    void subscribersGetTheRankingThenOneDeltaPerBatchOfUpdates() throws Exception {
+        update("1248991", 40.0, "t1");
+        awaitPublished();
+
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(frame -> frames.add(new String(frame, StandardCharsets.UTF_8)), () -> { }, null);
+
+        String snapshot = frames.poll(5, TimeUnit.SECONDS);
+        assertThat(snapshot).startsWith("id: 1\nevent: ranking\ndata: [").endsWith("]\n\n");
+
+        update("1850147", 70.0, "t1");
+        update("2644210", 55.0, "t1");
+        String delta = frames.poll(5, TimeUnit.SECONDS);
+        assertThat(delta).startsWith("id: 3\nevent: ranking-delta\ndata: {").endsWith("}\n\n");
+
+        JsonNode json = objectMapper.readTree(delta.substring(delta.indexOf("data: ") + 6));
+        assertThat(json.get("version").asLong()).isEqualTo(3);
+        assertThat(json.get("changed")).hasSize(3);
+        assertThat(json.get("changed").get(2).get("city_id").asText()).isEqualTo("1248991");
+        assertThat(json.get("changed").get(2).get("rank").asInt()).isEqualTo(3);
+        assertThat(json.get("changed").get(2).has("comfort_score")).isFalse();
+        assertThat(frames.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(broadcaster.getDeltaCount()).isEqualTo(1);
+    }
+
+    @Test
+    void reconnectingAtTheCurrentVersionSkipsTheRanking() throws Exception {
+        update("1248991", 40.0, "t1");
+        awaitPublished();
+
+        BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(frame -> frames.add(new String(frame, StandardCharsets.UTF_8)), () -> { }, "1");
+        update("1850147", 70.0, "t1");
+
+        assertThat(frames.poll(5, TimeUnit.SECONDS)).contains("event: ranking-delta");
+    }
+
+    @Test
+    void slowSubscribersAreDroppedWithoutHoldingBackOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        broadcaster.subscribe(frame -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, closed::countDown, null);
+        BlockingQueue<String> fast = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(frame -> fast.add(new String(frame, StandardCharsets.UTF_8)), () -> { }, null);
+        assertThat(fast.poll(5, TimeUnit.SECONDS)).contains("event: ranking");
+
+        // The slow writer is stuck on its first frame; two more fill its buffer
+        for (int i = 0; i < 4; i++) {
+            update("1248991", 40.0 + i, "t" + i);
+            assertThat(fast.poll(5, TimeUnit.SECONDS)).contains("event: ranking-delta");
+        }
+
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(broadcaster.getDroppedCount()).isEqualTo(1);
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void stalledWritersDoNotStarveHealthySubscribers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(2);
+        // As many stalled clients as pooled writer threads
+        for (int i = 0; i < 2; i++) {
+            broadcaster.subscribe(frame -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, closed::countDown, null);
+        }
+        BlockingQueue<String> healthy = new LinkedBlockingQueue<>();
+        broadcaster.subscribe(frame -> healthy.add(new String(frame, StandardCharsets.UTF_8)), () -> { }, null);
+        assertThat(healthy.poll(5, TimeUnit.SECONDS)).contains("event: ranking");
+
+        for (int i = 0; i < 4; i++) {
+            update("1248991", 40.0 + i, "t" + i);
+            assertThat(healthy.poll(5, TimeUnit.SECONDS)).contains("event: ranking-delta");
+        }
+
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void aSubscriberClosedBeforeItJoinsIsNeverAdded() throws Exception {
+        ScheduledExecutorService scheduler =
+                (ScheduledExecutorService) ReflectionTestUtils.getField(broadcaster, "scheduler");
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        broadcaster.subscribe(frame -> { }, () -> { }, null).close();
+        release.countDown();
+        scheduler.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+        update("1248991", 40.0, "t1");
+        Thread.sleep(100);
+        assertThat(broadcaster.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void subscriptionsBeyondTheCapAreRejectedUntilOneCloses() {
+        RankingSubscription first = broadcaster.subscribe(frame -> { }, () -> { }, null);
+        broadcaster.subscribe(frame -> { }, () -> { }, null);
+        broadcaster.subscribe(frame -> { }, () -> { }, null);
+
+        assertThatThrownBy(() -> broadcaster.subscribe(frame -> { }, () -> { }, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("503");
+        assertThat(broadcaster.getRejectedCount()).isEqualTo(1);
+
+        first.close();
+        assertThat(broadcaster.subscribe(frame -> { }, () -> { }, null).isClosed()).isFalse();
+    }
+
+    private void update(String cityId, double score, String timestamp) {
+        WeatherResponseDTO weather = new WeatherResponseDTO();
+        weather.setCityId(cityId);
+        weather.setComfortScore(score);
+        weather.setTimestamp(timestamp);
+        weather.setCacheStatus("HIT");
+        index.update(cityId, weather);
+        broadcaster.onCityWeatherUpdated(new CityWeatherUpdatedEvent(cityId, weather));
+    }
+
+    private void awaitPublished() throws InterruptedException {
+        CountDownLatch joined = new CountDownLatch(1);
+        // Subscriptions are handled on the publishing thread after any pending delta
+        Thread.sleep(50);
+        broadcaster.subscribe(frame -> joined.countDown(), () -> { }, null);
+        assertThat(joined.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
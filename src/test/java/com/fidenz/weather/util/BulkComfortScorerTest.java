@@ -0,0 +1,124 @@
+package com.fidenz.weather.util;
+
+import com.fidenz.weather.dto.ComfortModelDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.DoubleStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BulkComfortScorerTest {
+
+    private static final double[] SPECIAL = {
+            Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -0.0, 0.0,
+            Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE
+    };
+
+    private static final double[] BREAKPOINTS = {
+            5, 10, 14, 15, 20, 25, 30, 35, 40, 60, 70, 75, 80, 100, 5 / 3.6, 20 / 3.6, 45 / 3.6
+    };
+
+    private static final ComfortModel MODEL = ComfortModel.DEFAULT;
+
+    @Test
+    void subScoresAreBitIdenticalAtEveryBreakpoint() {
+        for (double value : edgeValues()) {
+            assertIdentical(value);
+        }
+    }
+
+    @Test
+    void bulkScoresAreBitIdenticalAcrossAllEdgeCombinations() {
+        double[] edges = edgeValues();
+        int n = edges.length * edges.length * edges.length;
+        double[] temps = new double[n];
+        double[] humidity = new double[n];
+        double[] wind = new double[n];
+        for (int i = 0; i < n; i++) {
+            temps[i] = edges[i % edges.length];
+            humidity[i] = edges[(i / edges.length) % edges.length];
+            wind[i] = edges[i / (edges.length * edges.length)];
+        }
+
+        assertBulkMatchesScalar(MODEL, temps, humidity, wind);
+    }
+
+    @Test
+    void usesTheVectorKernelWhenTheIncubatorModuleIsLoaded() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        assumeTrue(getClass().getClassLoader().getResource("com/fidenz/weather/util/VectorComfortScorer.class") != null);
+
+        assertThat(BulkComfortScorer.isVectorized()).isTrue();
+    }
+
+    @Test
+    void bulkScoresAreBitIdenticalToScalarScores() {
+        Random random = new Random(17);
+        int n = 200_000;
+        double[] temps = DoubleStream.generate(() -> maybeMissing(random, random.nextDouble() * 80 - 30)).limit(n).toArray();
+        double[] humidity = DoubleStream.generate(() -> maybeMissing(random, random.nextDouble() * 110 - 5)).limit(n).toArray();
+        double[] wind = DoubleStream.generate(() -> maybeMissing(random, random.nextDouble() * 30)).limit(n).toArray();
+
+        assertBulkMatchesScalar(MODEL, temps, humidity, wind);
+    }
+
+    @Test
+    void customModelsAreScoredIdenticallyToo() {
+        ComfortModelDTO definition = new ComfortModelDTO();
+        definition.setWeights(new ComfortModelDTO.Weights(0.5, 0.25, 0.25));
+        definition.setTemperature(new ComfortModelDTO.Band(12.5, 18.0, 24.0, 31.0, 7.5));
+        definition.setWind(new ComfortModelDTO.Wind(3.0, 25.0, 1.5));
+        ComfortModel custom = ComfortModel.compile(definition, 1);
+
+        Random random = new Random(29);
+        int n = 50_000;
+        double[] temps = DoubleStream.generate(() -> maybeMissing(random, random.nextDouble() * 80 - 30)).limit(n).toArray();
+        double[] humidity = DoubleStream.generate(() -> maybeMissing(random, random.nextDouble() * 110 - 5)).limit(n).toArray();
+        double[] wind = DoubleStream.generate(() -> maybeMissing(random, random.nextDouble() * 30)).limit(n).toArray();
+
+        assertBulkMatchesScalar(custom, temps, humidity, wind);
+    }
+
+    private static void assertBulkMatchesScalar(ComfortModel model, double[] temps, double[] humidity, double[] wind) {
+        double[] scores = new double[temps.length];
+
+        BulkComfortScorer.scoreAll(model, temps, humidity, wind, scores);
+
+        for (int i = 0; i < temps.length; i++) {
+            double expected = model.score(temps[i], humidity[i], wind[i]);
+            assertThat(Double.doubleToRawLongBits(scores[i]))
+                    .as("reading %d (%s, %s, %s)", i, temps[i], humidity[i], wind[i])
+                    .isEqualTo(Double.doubleToRawLongBits(expected));
+        }
+    }
+
+    private static double[] edgeValues() {
+        DoubleStream.Builder values = DoubleStream.builder();
+        for (double breakpoint : BREAKPOINTS) {
+            values.add(breakpoint).add(Math.nextDown(breakpoint)).add(Math.nextUp(breakpoint));
+        }
+        for (double value : SPECIAL) {
+            values.add(value);
+        }
+        return values.build().toArray();
+    }
+
+    private static void assertIdentical(double value) {
+        assertThat(bits(BulkComfortScorer.bandScore(MODEL.temperature, value)))
+                .as("temperature %s", value).isEqualTo(bits(MODEL.temperatureScore(value)));
+        assertThat(bits(BulkComfortScorer.bandScore(MODEL.humidity, value)))
+                .as("humidity %s", value).isEqualTo(bits(MODEL.humidityScore(value)));
+        assertThat(bits(BulkComfortScorer.windScore(MODEL, value)))
+                .as("wind %s", value).isEqualTo(bits(MODEL.windScore(value)));
+    }
+
+    private static long bits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    private static double maybeMissing(Random random, double value) {
+        return random.nextInt(50) == 0 ? Double.NaN : value;
+    }
+}
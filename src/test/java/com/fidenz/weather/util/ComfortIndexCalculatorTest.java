@@ -0,0 +1,73 @@
+package com.fidenz.weather.util;
+
+import com.fidenz.weather.dto.ComfortIndexResponse;
+import com.fidenz.weather.dto.WeatherResponseDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ComfortIndexCalculatorTest {
+
+    private final ComfortIndexCalculator calculator = new ComfortIndexCalculator(false);
+
+    @Test
+    void dtoWrapperMatchesThePrimitiveScore() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            double temp = random.nextDouble() * 70 - 25;
+            double humidity = random.nextDouble() * 100;
+            double wind = random.nextDouble() * 25;
+
+            ComfortIndexResponse response = calculator.calculateComfortIndex(weather(temp, humidity, wind));
+
+            assertThat(response.getComfortScore()).isEqualTo(calculator.score(temp, humidity, wind));
+        }
+    }
+
+    @Test
+    void idealConditionsScoreFullMarks() {
+        ComfortIndexResponse response = calculator.calculateComfortIndex(weather(22.0, 50.0, 1.0));
+
+        assertThat(response.getComfortScore()).isEqualTo(100.0);
+        assertThat(response.getComfortLevel()).isEqualTo("Very Comfortable");
+    }
+
+    @Test
+    void missingReadingsAreNeutralInsteadOfFailing() {
+        WeatherResponseDTO dto = weather(22.0, null, null);
+
+        ComfortIndexResponse response = calculator.calculateComfortIndex(dto);
+
+        assertThat(response.getHumidityImpact()).isEqualTo(50.0);
+        assertThat(response.getWindImpact()).isEqualTo(50.0);
+        assertThat(response.getComfortScore()).isEqualTo(70.0);
+        assertThat(calculator.score(22.0, Double.NaN, Double.NaN)).isEqualTo(70.0);
+    }
+
+    @Test
+    void bulkScoringMatchesScalarScoring() {
+        double[] temps = {-10, 18, 22, 28, 35, Double.NaN};
+        double[] humidity = {10, 35, 50, 65, 90, 50};
+        double[] wind = {0, 2, 4, 6, 12, 1};
+        double[] scores = new double[temps.length];
+
+        calculator.scoreAll(temps, humidity, wind, scores);
+
+        for (int i = 0; i < temps.length; i++) {
+            assertThat(scores[i]).isEqualTo(calculator.score(temps[i], humidity[i], wind[i]));
+        }
+        assertThatThrownBy(() -> calculator.scoreAll(temps, humidity, wind, new double[2]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static WeatherResponseDTO weather(Double temp, Double humidity, Double wind) {
+        WeatherResponseDTO dto = new WeatherResponseDTO();
+        dto.setTemperature(temp);
+        dto.setHumidity(humidity);
+        dto.setWindSpeed(wind);
+        return dto;
+    }
+}
@@ -0,0 +1,65 @@
+package com.fidenz.weather.util;
+
+import com.fidenz.weather.dto.ComfortModelDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ComfortModelTest {
+
+    @Test
+    void theDefaultDefinitionRoundTrips() {
+        ComfortModel compiled = ComfortModel.compile(ComfortModel.DEFAULT.toDefinition(), 3);
+
+        assertThat(compiled.getVersion()).isEqualTo(3);
+        assertThat(compiled.toDefinition()).usingRecursiveComparison().ignoringFields("version")
+                .isEqualTo(ComfortModel.DEFAULT.toDefinition());
+        assertThat(compiled.score(18.0, 35.0, 3.0)).isEqualTo(ComfortModel.DEFAULT.score(18.0, 35.0, 3.0));
+    }
+
+    @Test
+    void omittedValuesKeepTheirDefaults() {
+        ComfortModelDTO definition = new ComfortModelDTO();
+        definition.setWeights(new ComfortModelDTO.Weights(1.0, 0.0, null));
+        definition.setLevels(new ComfortModelDTO.Levels(90.0, null, null, null));
+
+        ComfortModel model = ComfortModel.compile(definition, 1);
+
+        assertThat(model.toDefinition().getWeights()).isEqualTo(new ComfortModelDTO.Weights(1.0, 0.0, 0.3));
+        assertThat(model.toDefinition().getTemperature()).isEqualTo(ComfortModel.DEFAULT.toDefinition().getTemperature());
+        assertThat(model.level(85)).isEqualTo("Comfortable");
+        assertThat(model.level(90)).isEqualTo("Very Comfortable");
+    }
+
+    @Test
+    void invalidDefinitionsAreRejected() {
+        ComfortModelDTO unordered = new ComfortModelDTO();
+        unordered.setTemperature(new ComfortModelDTO.Band(20.0, 15.0, 25.0, 30.0, 10.0));
+        ComfortModelDTO negativeWeight = new ComfortModelDTO();
+        negativeWeight.setWeights(new ComfortModelDTO.Weights(-0.1, 0.5, 0.5));
+        ComfortModelDTO levels = new ComfortModelDTO();
+        levels.setLevels(new ComfortModelDTO.Levels(50.0, 60.0, 40.0, 20.0));
+
+        assertThatThrownBy(() -> ComfortModel.compile(unordered, 1))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("temperature");
+        assertThatThrownBy(() -> ComfortModel.compile(negativeWeight, 1))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("weights.temperature");
+        assertThatThrownBy(() -> ComfortModel.compile(levels, 1))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("thresholds");
+    }
+
+    @Test
+    void theCalculatorSwapsModelsAtomically() {
+        ComfortIndexCalculator calculator = new ComfortIndexCalculator(true);
+        ComfortModelDTO definition = new ComfortModelDTO();
+        definition.setWeights(new ComfortModelDTO.Weights(0.0, 0.0, 1.0));
+
+        double before = calculator.score(22.0, 50.0, 5.0);
+        calculator.setModel(ComfortModel.compile(definition, 7));
+
+        assertThat(calculator.getModel().getVersion()).isEqualTo(7);
+        assertThat(calculator.score(22.0, 50.0, 5.0)).isNotEqualTo(before)
+                .isEqualTo(ComfortModel.round(calculator.getModel().windScore(5.0)));
+    }
+}
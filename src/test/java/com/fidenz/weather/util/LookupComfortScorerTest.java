@@ -0,0 +1,81 @@
+package com.fidenz.weather.util;
+
+import com.fidenz.weather.dto.ComfortModelDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LookupComfortScorerTest {
+
+    private static final double TOLERANCE = LookupComfortScorer.SUB_SCORE_TOLERANCE;
+
+    private static final ComfortModel MODEL = ComfortModel.DEFAULT;
+
+    private final LookupComfortScorer tables = new LookupComfortScorer(MODEL);
+    private final ComfortIndexCalculator exact = new ComfortIndexCalculator(false);
+    private final ComfortIndexCalculator lookup = new ComfortIndexCalculator(true);
+
+    @Test
+    void subScoresStayWithinTheDocumentedBoundForRandomReadings() {
+        assertWithinBound(tables, MODEL, new Random(2024));
+    }
+
+    @Test
+    void tablesFollowACustomModelsBreakpoints() {
+        ComfortModelDTO definition = new ComfortModelDTO();
+        definition.setTemperature(new ComfortModelDTO.Band(12.345, 18.0, 24.0, 31.0, 7.5));
+        definition.setHumidity(new ComfortModelDTO.Band(25.0, 35.0, 55.0, 80.0, 2.0));
+        definition.setWind(new ComfortModelDTO.Wind(3.3, 25.0, 1.5));
+        ComfortModel custom = ComfortModel.compile(definition, 1);
+
+        assertWithinBound(new LookupComfortScorer(custom), custom, new Random(99));
+    }
+
+    @Test
+    void breakpointsAndSpecialValuesMatchTheExactFormulas() {
+        double[] values = {15, 20, 25, 30, 40, 60, 70, 5 / 3.6, 20 / 3.6, 45 / 3.6, -60, 60, 0, 100, 15,
+                Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        for (double value : values) {
+            for (double v : new double[]{value, Math.nextDown(value), Math.nextUp(value)}) {
+                assertThat(tables.temperatureScore(v)).isEqualTo(MODEL.temperatureScore(v));
+                assertThat(tables.humidityScore(v)).isEqualTo(MODEL.humidityScore(v));
+                assertThat(tables.windScore(v)).isEqualTo(MODEL.windScore(v));
+            }
+        }
+    }
+
+    @Test
+    void roundedScoresDifferByAtMostOneTenth() {
+        Random random = new Random(7);
+        int n = 200_000;
+        double[] temps = random.doubles(n, -30, 50).toArray();
+        double[] humidity = random.doubles(n, 0, 100).toArray();
+        double[] wind = random.doubles(n, 0, 20).toArray();
+        double[] scores = new double[n];
+
+        lookup.scoreAll(temps, humidity, wind, scores);
+
+        for (int i = 0; i < n; i++) {
+            assertThat(scores[i]).isCloseTo(exact.score(temps[i], humidity[i], wind[i]), within(0.1 + 1e-12));
+            assertThat(lookup.score(temps[i], humidity[i], wind[i])).isEqualTo(scores[i]);
+        }
+    }
+
+    private static void assertWithinBound(LookupComfortScorer tables, ComfortModel model, Random random) {
+        for (int i = 0; i < 1_000_000; i++) {
+            double temperature = random.nextDouble() * 140 - 70;
+            double humidity = random.nextDouble() * 110 - 5;
+            double wind = random.nextDouble() * 20;
+
+            assertThat(tables.temperatureScore(temperature)).as("temperature %s", temperature)
+                    .isCloseTo(model.temperatureScore(temperature), within(TOLERANCE));
+            assertThat(tables.humidityScore(humidity)).as("humidity %s", humidity)
+                    .isCloseTo(model.humidityScore(humidity), within(TOLERANCE));
+            assertThat(tables.windScore(wind)).as("wind %s", wind)
+                    .isCloseTo(model.windScore(wind), within(TOLERANCE));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.fidenz.weather.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void flushesAsSoonAsTheBatchIsFull() throws Exception {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(3, 10_000, upperCase(), scheduler);
+
+        CompletableFuture<String> a = batcher.submit("a");
+        CompletableFuture<String> b = batcher.submit("b");
+        assertThat(batches).isEmpty();
+        CompletableFuture<String> c = batcher.submit("c");
+
+        assertThat(a.get(1, TimeUnit.SECONDS)).isEqualTo("A");
+        assertThat(b.get(1, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(c.get(1, TimeUnit.SECONDS)).isEqualTo("C");
+        assertThat(batches).containsExactly(List.of("a", "b", "c"));
+        assertThat(batcher.getBatchSizes().getMax()).isEqualTo(3);
+    }
+
+    @Test
+    void flushesAPartialBatchAfterTheWaitWindow() throws Exception {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(20, 20, upperCase(), scheduler);
+
+        CompletableFuture<String> a = batcher.submit("a");
+        CompletableFuture<String> repeat = batcher.submit("a");
+        CompletableFuture<String> b = batcher.submit("b");
+
+        assertThat(a.get(1, TimeUnit.SECONDS)).isEqualTo("A");
+        assertThat(repeat.get(1, TimeUnit.SECONDS)).isEqualTo("A");
+        assertThat(b.get(1, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(batches).containsExactly(List.of("a", "b"));
+        assertThat(batcher.getWaitMicros().getCount()).isEqualTo(2);
+        assertThat(batcher.getWaitMicros().getMax()).isGreaterThanOrEqualTo(15_000);
+    }
+
+    @Test
+    void batchFailureAndMissingKeysFailTheCallers() {
+        MicroBatcher<String, String> failing = new MicroBatcher<>(1, 10,
+                keys -> CompletableFuture.failedFuture(new IllegalStateException("upstream down")), scheduler);
+        assertThatThrownBy(() -> failing.submit("a").join()).hasMessageContaining("upstream down");
+
+        MicroBatcher<String, String> partial = new MicroBatcher<>(1, 10,
+                keys -> CompletableFuture.completedFuture(Map.of()), scheduler);
+        assertThatThrownBy(() -> partial.submit("a").join()).hasMessageContaining("No result for a");
+    }
+
+    @Test
+    void histogramBucketsByUpperBound() {
+        Histogram histogram = new Histogram(1, 4, 16);
+        for (long value : new long[]{1, 2, 4, 5, 100}) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.snapshot().get("buckets"))
+                .isEqualTo(Map.of("<=1", 1L, "<=4", 2L, "<=16", 1L, ">16", 1L));
+        assertThat(histogram.snapshot().get("count")).isEqualTo(5L);
+        assertThat(histogram.getMax()).isEqualTo(100);
+    }
+
+    private Function<List<String>, CompletableFuture<Map<String, String>>> upperCase() {
+        return keys -> {
+            batches.add(keys);
+            return CompletableFuture.completedFuture(
+                    keys.stream().collect(Collectors.toMap(key -> key, String::toUpperCase)));
+        };
+    }
+}
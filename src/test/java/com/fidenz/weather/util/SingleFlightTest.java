@@ -0,0 +1,74 @@
+package com.fidenz.weather.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsForSameKeyShareOneExecution() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        int callers = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> flight.execute("1248991", () -> {
+                    upstreamCalls.incrementAndGet();
+                    awaitCoalesced(flight, callers - 1);
+                    return "Colombo";
+                })));
+            }
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Colombo");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        assertThat(flight.getExecutionCount()).isEqualTo(1);
+        assertThat(flight.getCoalescedCount()).isEqualTo(callers - 1);
+        assertThat(flight.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void sequentialCallsExecuteEachTime() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        flight.execute("a", upstreamCalls::incrementAndGet);
+        flight.execute("a", upstreamCalls::incrementAndGet);
+
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+        assertThat(flight.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void failureIsPropagatedAndKeyIsReleased() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+
+        assertThatThrownBy(() -> flight.execute("a", () -> {
+            throw new IllegalStateException("upstream down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(flight.execute("a", () -> "ok")).isEqualTo("ok");
+    }
+
+    private static void awaitCoalesced(SingleFlight<?, ?> flight, int expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getCoalescedCount() < expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}